@@ -0,0 +1,55 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.content.Context
+import android.graphics.drawable.Drawable
+import android.util.AttributeSet
+import androidx.appcompat.widget.AppCompatImageView
+import kotlin.math.roundToInt
+
+/**
+ * ImageView whose height follows its width through [aspectRatio] (width / height).
+ *
+ * The box is fixed at bind time from the image metadata, so once a ratio is set a new
+ * drawable (placeholder or the loaded bitmap) cannot change the view's size and its
+ * layout request is skipped.
+ */
+class AspectRatioImageView @JvmOverloads constructor(
+    context: Context,
+    attrs: AttributeSet? = null,
+    defStyleAttr: Int = 0
+) : AppCompatImageView(context, attrs, defStyleAttr) {
+
+    var aspectRatio = 0f
+        set(value) {
+            if (field != value) {
+                field = value
+                requestLayout()
+            }
+        }
+
+    private var ignoreLayoutRequests = false
+
+    override fun onMeasure(widthMeasureSpec: Int, heightMeasureSpec: Int) {
+        if (aspectRatio <= 0f) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec)
+            return
+        }
+        val width = MeasureSpec.getSize(widthMeasureSpec)
+        setMeasuredDimension(width, (width / aspectRatio).roundToInt())
+    }
+
+    override fun setImageDrawable(drawable: Drawable?) {
+        ignoreLayoutRequests = aspectRatio > 0f
+        try {
+            super.setImageDrawable(drawable)
+        } finally {
+            ignoreLayoutRequests = false
+        }
+    }
+
+    override fun requestLayout() {
+        if (!ignoreLayoutRequests) {
+            super.requestLayout()
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.content.Context
+import android.util.AtomicFile
+import android.util.Log
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Compact, versioned binary copy of the decoded breeds list.
+ *
+ * Layout: magic, version, row count, then per row `id`, `userId` (ints), `completed`
+ * (byte), `name`, `title` (length-prefixed UTF-8), an image flag and, if set, image `id`,
+ * `url`, `width`, `height`. Written atomically with [AtomicFile]; read back by
+ * memory-mapping the file and decoding rows only when they are accessed.
+ */
+object BreedSnapshot {
+
+    private const val FILE_NAME = "breeds.snapshot"
+    private const val MAGIC = 0x42524453 // "BRDS"
+    private const val VERSION = 1
+    private const val HEADER_BYTES = 12
+    private const val MIN_ROW_BYTES = 18
+    private const val TAG = "BreedSnapshot"
+
+    private fun file(context: Context) = AtomicFile(File(context.filesDir, FILE_NAME))
+
+    @Throws(IOException::class)
+    fun write(context: Context, todos: List<Todo>) {
+        val file = file(context)
+        val stream = file.startWrite()
+        try {
+            encode(todos, stream)
+            file.finishWrite(stream)
+        } catch (e: IOException) {
+            file.failWrite(stream)
+            throw e
+        }
+    }
+
+    /**
+     * Returns null when there is no snapshot or it was written by another version. A
+     * truncated or corrupt snapshot is deleted so the next refresh writes a fresh one.
+     */
+    fun read(context: Context): List<Todo>? {
+        val file = file(context)
+        if (!file.baseFile.exists()) return null
+        return try {
+            // openRead() restores the backup left by a write interrupted before API 30.
+            val buffer = file.openRead().use { input ->
+                input.channel.map(FileChannel.MapMode.READ_ONLY, 0, input.channel.size())
+            }
+            decode(buffer)
+        } catch (e: IOException) {
+            discard(file, e)
+        } catch (e: RuntimeException) {
+            discard(file, e)
+        }
+    }
+
+    private fun discard(file: AtomicFile, cause: Exception): List<Todo>? {
+        Log.w(TAG, "Discarding unreadable breeds snapshot", cause)
+        file.delete()
+        return null
+    }
+
+    @Throws(IOException::class)
+    internal fun encode(todos: List<Todo>, stream: OutputStream) {
+        val out = DataOutputStream(BufferedOutputStream(stream))
+        out.writeInt(MAGIC)
+        out.writeInt(VERSION)
+        out.writeInt(todos.size)
+        for (todo in todos) {
+            val image: Image? = todo.image
+            out.writeInt(todo.id)
+            out.writeInt(todo.userId)
+            out.writeByte(if (todo.completed) 1 else 0)
+            out.writeString(todo.name)
+            out.writeString(todo.title)
+            if (image == null) {
+                out.writeByte(0)
+            } else {
+                out.writeByte(1)
+                out.writeString(image.id)
+                out.writeString(image.url)
+                out.writeInt(image.width)
+                out.writeInt(image.height)
+            }
+        }
+        out.flush()
+    }
+
+    /**
+     * Returns null when [buffer] holds another version's snapshot; throws [IOException] when
+     * it is truncated or its row table runs past the end of the buffer.
+     */
+    @Throws(IOException::class)
+    internal fun decode(buffer: ByteBuffer): List<Todo>? {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return null
+        }
+        val rowCount = buffer.getInt(8)
+        // Every row takes at least 18 bytes, which bounds the offsets array as well.
+        if (rowCount < 0 || rowCount > (buffer.limit() - HEADER_BYTES) / MIN_ROW_BYTES) {
+            throw IOException("Corrupt snapshot row count $rowCount")
+        }
+        return SnapshotList(buffer, rowCount)
+    }
+
+    private fun DataOutputStream.writeString(value: String?) {
+        val bytes = (value ?: "").toByteArray(Charsets.UTF_8)
+        writeInt(bytes.size)
+        write(bytes)
+    }
+
+    /**
+     * Read-only view over a mapped snapshot. Row offsets are indexed up front by skipping
+     * over the length prefixes; a [Todo] is only built when its row is read.
+     */
+    private class SnapshotList(
+        private val buffer: ByteBuffer,
+        private val rowCount: Int
+    ) : AbstractList<Todo>(), RandomAccess {
+
+        private val offsets = IntArray(rowCount).also { offsets ->
+            var position = HEADER_BYTES
+            for (i in 0 until rowCount) {
+                offsets[i] = position
+                position = skip(position, 9) // id, userId, completed
+                position = skipString(position) // name
+                position = skipString(position) // title
+                val hasImage = buffer.get(checked(position, 1)).toInt() != 0
+                position += 1
+                if (hasImage) {
+                    position = skipString(position) // image id
+                    position = skipString(position) // url
+                    position = skip(position, 8) // width, height
+                }
+            }
+        }
+
+        private fun checked(position: Int, length: Int): Int {
+            if (length < 0 || position > buffer.limit() - length) {
+                throw IOException("Truncated snapshot at offset $position")
+            }
+            return position
+        }
+
+        private fun skip(position: Int, length: Int): Int = checked(position, length) + length
+
+        private fun skipString(position: Int): Int =
+            skip(position + 4, buffer.getInt(checked(position, 4)))
+
+        override val size: Int get() = rowCount
+
+        override fun get(index: Int): Todo {
+            val row = buffer.duplicate()
+            row.position(offsets[index])
+            val id = row.int
+            val userId = row.int
+            val completed = row.get().toInt() != 0
+            val name = row.readString()
+            val title = row.readString()
+            val image = if (row.get().toInt() != 0) {
+                Image(id = row.readString(), url = row.readString(), width = row.int, height = row.int)
+            } else {
+                null
+            }
+            return Todo(
+                completed = completed,
+                id = id,
+                title = title,
+                userId = userId,
+                name = name,
+                image = image
+            )
+        }
+
+        private fun ByteBuffer.readString(): String {
+            val bytes = ByteArray(int)
+            get(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+    }
+}
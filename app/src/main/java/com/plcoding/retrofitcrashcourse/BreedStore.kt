@@ -0,0 +1,255 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.Cursor
+import android.database.DatabaseUtils
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+
+/**
+ * Persistent, indexed on-device copy of the breeds list.
+ *
+ * Written incrementally after each successful fetch (only rows whose content changed
+ * are rewritten) and read back with keyed lookups and range queries, so offline reads
+ * never depend on what the HTTP cache still holds.
+ */
+class BreedStore private constructor(context: Context) :
+    SQLiteOpenHelper(context, DATABASE_NAME, null, DATABASE_VERSION) {
+
+    override fun onCreate(db: SQLiteDatabase) {
+        db.execSQL(
+            "CREATE TABLE $TABLE_BREEDS (" +
+                    "$COL_ID INTEGER PRIMARY KEY, " +
+                    "$COL_POSITION INTEGER NOT NULL, " +
+                    "$COL_NAME TEXT, " +
+                    "$COL_TITLE TEXT, " +
+                    "$COL_COMPLETED INTEGER NOT NULL, " +
+                    "$COL_USER_ID INTEGER NOT NULL, " +
+                    "$COL_IMAGE_ID TEXT, " +
+                    "$COL_ROW_HASH INTEGER NOT NULL)"
+        )
+        db.execSQL("CREATE INDEX idx_breeds_position ON $TABLE_BREEDS($COL_POSITION)")
+        db.execSQL("CREATE INDEX idx_breeds_name ON $TABLE_BREEDS($COL_NAME)")
+        db.execSQL(
+            "CREATE TABLE $TABLE_IMAGES (" +
+                    "$COL_ID TEXT PRIMARY KEY, " +
+                    "$COL_URL TEXT, " +
+                    "$COL_WIDTH INTEGER NOT NULL, " +
+                    "$COL_HEIGHT INTEGER NOT NULL)"
+        )
+    }
+
+    override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+        db.execSQL("DROP TABLE IF EXISTS $TABLE_BREEDS")
+        db.execSQL("DROP TABLE IF EXISTS $TABLE_IMAGES")
+        onCreate(db)
+    }
+
+    /**
+     * Makes the store mirror [todos]: changed or new rows are rewritten, rows that only
+     * moved get their position updated, rows no longer present are deleted along with
+     * images nothing refers to any more, and untouched rows are left alone.
+     */
+    fun replaceAll(todos: List<Todo>) {
+        val db = writableDatabase
+        db.beginTransaction()
+        try {
+            val existing = HashMap<Int, StoredRow>()
+            db.query(TABLE_BREEDS, arrayOf(COL_ID, COL_ROW_HASH, COL_POSITION), null, null, null, null, null).use { cursor ->
+                while (cursor.moveToNext()) {
+                    existing[cursor.getInt(0)] = StoredRow(cursor.getLong(1), cursor.getInt(2))
+                }
+            }
+            var changed = false
+            todos.forEachIndexed { position, todo ->
+                val rowHash = rowHash(todo)
+                val stored = existing.remove(todo.id)
+                if (stored == null || stored.rowHash != rowHash) {
+                    write(db, todo, position, rowHash)
+                    changed = true
+                } else if (stored.position != position) {
+                    movePosition(db, todo.id, position)
+                }
+            }
+            existing.keys.forEach { id ->
+                db.delete(TABLE_BREEDS, "$COL_ID = ?", arrayOf(id.toString()))
+                changed = true
+            }
+            if (changed) pruneImages(db)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    /** Writes one page of breeds at list positions starting from [startPosition]. */
+    fun upsert(todos: List<Todo>, startPosition: Int) {
+        val db = writableDatabase
+        db.beginTransaction()
+        try {
+            todos.forEachIndexed { index, todo ->
+                write(db, todo, startPosition + index, rowHash(todo))
+            }
+            pruneImages(db)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    fun get(id: Int): Todo? =
+        query("b.$COL_ID = ?", arrayOf(id.toString())).firstOrNull()
+
+    /** Breeds in list order, `limit` rows starting at `offset`. */
+    fun page(offset: Int, limit: Int): List<Todo> =
+        query(null, null, limit = "$offset, $limit")
+
+    /** Breeds with `fromId <= id <= toId`, in list order. */
+    fun idRange(fromId: Int, toId: Int): List<Todo> =
+        query("b.$COL_ID BETWEEN ? AND ?", arrayOf(fromId.toString(), toId.toString()))
+
+    /** Breeds whose name starts with [prefix], using the name index. */
+    fun namePrefix(prefix: String): List<Todo> =
+        query("b.$COL_NAME >= ? AND b.$COL_NAME < ?", arrayOf(prefix, prefix + '\uFFFF'))
+
+    fun all(): List<Todo> = query(null, null)
+
+    fun count(): Long = DatabaseUtils.queryNumEntries(readableDatabase, TABLE_BREEDS)
+
+    private fun write(db: SQLiteDatabase, todo: Todo, position: Int, rowHash: Long) {
+        val image: Image? = todo.image
+        val title: String? = todo.title
+        if (image != null) {
+            db.insertWithOnConflict(TABLE_IMAGES, null, ContentValues().apply {
+                put(COL_ID, image.id)
+                put(COL_URL, image.url)
+                put(COL_WIDTH, image.width)
+                put(COL_HEIGHT, image.height)
+            }, SQLiteDatabase.CONFLICT_REPLACE)
+        }
+        db.insertWithOnConflict(TABLE_BREEDS, null, ContentValues().apply {
+            put(COL_ID, todo.id)
+            put(COL_POSITION, position)
+            put(COL_NAME, todo.name)
+            put(COL_TITLE, title)
+            put(COL_COMPLETED, if (todo.completed) 1 else 0)
+            put(COL_USER_ID, todo.userId)
+            put(COL_IMAGE_ID, image?.id)
+            put(COL_ROW_HASH, rowHash)
+        }, SQLiteDatabase.CONFLICT_REPLACE)
+    }
+
+    private fun movePosition(db: SQLiteDatabase, id: Int, position: Int) {
+        db.update(
+            TABLE_BREEDS,
+            ContentValues().apply { put(COL_POSITION, position) },
+            "$COL_ID = ?",
+            arrayOf(id.toString())
+        )
+    }
+
+    /** Deletes images no breed refers to, e.g. after a breed was removed or its image changed. */
+    private fun pruneImages(db: SQLiteDatabase) {
+        db.delete(
+            TABLE_IMAGES,
+            "$COL_ID NOT IN (SELECT $COL_IMAGE_ID FROM $TABLE_BREEDS WHERE $COL_IMAGE_ID IS NOT NULL)",
+            null
+        )
+    }
+
+    private fun query(selection: String?, args: Array<String>?, limit: String? = null): List<Todo> {
+        val sql = StringBuilder(
+            "SELECT b.$COL_ID, b.$COL_NAME, b.$COL_TITLE, b.$COL_COMPLETED, b.$COL_USER_ID, " +
+                    "i.$COL_ID, i.$COL_URL, i.$COL_WIDTH, i.$COL_HEIGHT " +
+                    "FROM $TABLE_BREEDS b LEFT JOIN $TABLE_IMAGES i ON b.$COL_IMAGE_ID = i.$COL_ID"
+        )
+        if (selection != null) sql.append(" WHERE ").append(selection)
+        sql.append(" ORDER BY b.$COL_POSITION")
+        if (limit != null) sql.append(" LIMIT ").append(limit)
+        return readableDatabase.rawQuery(sql.toString(), args).use { cursor ->
+            val todos = ArrayList<Todo>(cursor.count)
+            while (cursor.moveToNext()) {
+                todos.add(cursor.toTodo())
+            }
+            todos
+        }
+    }
+
+    private fun Cursor.toTodo() = Todo(
+        id = getInt(0),
+        name = getString(1) ?: "",
+        title = getString(2) ?: "",
+        completed = getInt(3) != 0,
+        userId = getInt(4),
+        image = if (isNull(5)) null else Image(
+            id = getString(5),
+            url = getString(6) ?: "",
+            width = getInt(7),
+            height = getInt(8)
+        )
+    )
+
+    /**
+     * 64-bit FNV-1a content hash that tolerates nulls from lists decoded outside
+     * [TodoJson]. The list position is stored separately, so a row that only moved is
+     * not rewritten.
+     */
+    private fun rowHash(todo: Todo): Long {
+        val name: String? = todo.name
+        val title: String? = todo.title
+        val image: Image? = todo.image
+        return arrayOf<Any?>(
+            todo.id, name, title, todo.completed, todo.userId,
+            image?.id, image?.url, image?.width, image?.height
+        ).fold(FNV_OFFSET_BASIS) { hash, field -> hashField(hash, field?.toString()) }
+    }
+
+    /** Mixes in the length first (-1 for null) so adjacent fields cannot run together. */
+    private fun hashField(seed: Long, text: String?): Long {
+        var hash = hashInt(seed, text?.length ?: -1)
+        text?.forEach { c -> hash = hashByte(hashByte(hash, c.code), c.code ushr 8) }
+        return hash
+    }
+
+    private fun hashInt(seed: Long, value: Int): Long {
+        var hash = seed
+        for (shift in 0 until 32 step 8) hash = hashByte(hash, value ushr shift)
+        return hash
+    }
+
+    private fun hashByte(hash: Long, byte: Int): Long =
+        (hash xor (byte and 0xFF).toLong()) * FNV_PRIME
+
+    private class StoredRow(val rowHash: Long, val position: Int)
+
+    companion object {
+        private const val DATABASE_NAME = "breeds.db"
+        private const val DATABASE_VERSION = 1
+
+        private const val TABLE_BREEDS = "breeds"
+        private const val TABLE_IMAGES = "images"
+        private const val COL_ID = "id"
+        private const val COL_POSITION = "position"
+        private const val COL_NAME = "name"
+        private const val COL_TITLE = "title"
+        private const val COL_COMPLETED = "completed"
+        private const val COL_USER_ID = "user_id"
+        private const val COL_IMAGE_ID = "image_id"
+        private const val COL_ROW_HASH = "row_hash"
+        private const val COL_URL = "url"
+        private const val COL_WIDTH = "width"
+        private const val COL_HEIGHT = "height"
+
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+
+        @Volatile
+        private var instance: BreedStore? = null
+
+        fun getInstance(context: Context): BreedStore =
+            instance ?: synchronized(this) {
+                instance ?: BreedStore(context.applicationContext).also { instance = it }
+            }
+    }
+}
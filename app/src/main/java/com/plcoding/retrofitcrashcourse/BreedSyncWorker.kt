@@ -0,0 +1,102 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.content.Context
+import android.util.Log
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.squareup.picasso.Callback
+import com.squareup.picasso.Picasso
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
+import retrofit2.HttpException
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+import kotlin.coroutines.resume
+
+/**
+ * Periodically refreshes the breeds list and the images of the first screen into the
+ * local caches while the device is charging on an unmetered network, so foreground
+ * opens are served from cache.
+ *
+ * The refresh goes through [TodoRepository.refresh], which shares any fetch already in
+ * flight from the foreground.
+ */
+class BreedSyncWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    override suspend fun doWork(): Result {
+        val todos = try {
+            TodoRepository.refresh()
+        } catch (e: IOException) {
+            Log.w(TAG, "Sync failed", e)
+            return Result.retry()
+        } catch (e: HttpException) {
+            Log.w(TAG, "Sync failed with HTTP ${e.code()}")
+            return Result.retry()
+        }
+        // Same downsampled requests the adapter binds, so the cached entries are reused.
+        val targetWidth = applicationContext.resources.displayMetrics.widthPixels
+        withContext(Dispatchers.Main) {
+            todos.asSequence()
+                .take(IMAGES_PER_SYNC)
+                .mapNotNull { it.image?.takeIf { image -> ImageRequests.urlOf(image) != null } }
+                .forEach { prefetch(it, targetWidth) }
+        }
+        return Result.success()
+    }
+
+    /**
+     * Downloads [image] into Picasso's disk cache and decodes it at the downsampled bind
+     * size, as [ImagePrefetcher] does; failures are only logged.
+     */
+    private suspend fun prefetch(image: Image, targetWidth: Int) =
+        suspendCancellableCoroutine<Unit> { continuation ->
+            val tag = Any()
+            ImageRequests.load(image, targetWidth)
+                .priority(Picasso.Priority.LOW)
+                .tag(tag)
+                .fetch(object : Callback {
+                    override fun onSuccess() {
+                        continuation.resume(Unit)
+                    }
+
+                    override fun onError(e: Exception?) {
+                        Log.w(TAG, "Could not prefetch ${image.url}", e)
+                        continuation.resume(Unit)
+                    }
+                })
+            continuation.invokeOnCancellation { Picasso.get().cancelTag(tag) }
+        }
+
+    companion object {
+        private const val TAG = "BreedSyncWorker"
+        private const val WORK_NAME = "breed-sync"
+        private const val SYNC_INTERVAL_HOURS = 6L
+
+        /** Images of roughly the first screen, which is what a cold open shows. */
+        private const val IMAGES_PER_SYNC = 10
+
+        fun schedule(context: Context) {
+            val constraints = Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build()
+            val request = PeriodicWorkRequestBuilder<BreedSyncWorker>(
+                SYNC_INTERVAL_HOURS, TimeUnit.HOURS
+            ).setConstraints(constraints).build()
+            WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                request
+            )
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.plcoding.retrofitcrashcourse
+
+enum class CacheMode {
+    /** Store the response and treat it as fresh for `maxAgeSeconds`. */
+    TTL,
+
+    /** Store the response but revalidate it with the server on every use. */
+    REVALIDATE,
+
+    /** Never write the response to the HTTP cache. */
+    NEVER
+}
+
+/**
+ * Declares how responses of a [TodoApi] method are cached. Read by [CachePolicyEngine]
+ * through Retrofit's [retrofit2.Invocation] tag; endpoints without the annotation can be
+ * registered with [CachePolicyEngine.register] instead.
+ */
+@Target(AnnotationTarget.FUNCTION)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class CachePolicy(
+    val name: String,
+    val mode: CacheMode = CacheMode.TTL,
+    val maxAgeSeconds: Int = 0,
+    /** How old a cached response may be when served without a connection. */
+    val maxStaleSeconds: Int = 0
+)
+
+data class CacheRule(
+    val name: String,
+    val mode: CacheMode,
+    val maxAgeSeconds: Int,
+    val maxStaleSeconds: Int
+)
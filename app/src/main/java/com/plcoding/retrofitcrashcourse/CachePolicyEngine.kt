@@ -0,0 +1,119 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Interceptor
+import okhttp3.Request
+import okhttp3.Response
+import retrofit2.Invocation
+import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Resolves a [CacheRule] for every request, rewrites response caching headers to match it
+ * and counts cache hits, misses and revalidations per rule.
+ *
+ * Rules come from a [CachePolicy] annotation on the Retrofit method, then from path
+ * prefixes registered with [register], then [defaultRule].
+ */
+object CachePolicyEngine {
+
+    data class RuleStats(val hits: Long, val misses: Long, val revalidations: Long)
+
+    private class Counters {
+        val hits = AtomicLong()
+        val misses = AtomicLong()
+        val revalidations = AtomicLong()
+    }
+
+    private const val HEADER_CACHE_CONTROL = "Cache-Control"
+    private const val HEADER_PRAGMA = "Pragma"
+
+    /**
+     * Used when nothing else matches: only responses whose own headers do not allow
+     * caching are given a five thousand second lifetime.
+     */
+    val defaultRule = CacheRule(
+        name = "default",
+        mode = CacheMode.TTL,
+        maxAgeSeconds = 5000,
+        maxStaleSeconds = TimeUnit.DAYS.toSeconds(7).toInt()
+    )
+
+    private val annotatedRules = ConcurrentHashMap<Method, CacheRule>()
+    private val registeredRules = CopyOnWriteArrayList<Pair<String, CacheRule>>()
+    private val counters = ConcurrentHashMap<String, Counters>()
+
+    /** Applies [rule] to every request whose encoded path starts with [pathPrefix]. */
+    fun register(pathPrefix: String, rule: CacheRule) {
+        registeredRules.add(pathPrefix to rule)
+    }
+
+    fun ruleFor(request: Request): CacheRule {
+        val method = request.tag(Invocation::class.java)?.method()
+        if (method != null) {
+            annotatedRules[method]?.let { return it }
+            val annotation = method.getAnnotation(CachePolicy::class.java)
+            if (annotation != null) {
+                return CacheRule(
+                    annotation.name,
+                    annotation.mode,
+                    annotation.maxAgeSeconds,
+                    annotation.maxStaleSeconds
+                ).also { annotatedRules[method] = it }
+            }
+        }
+        val path = request.url.encodedPath
+        return registeredRules.firstOrNull { (prefix, _) -> path.startsWith(prefix) }?.second
+            ?: defaultRule
+    }
+
+    fun stats(): Map<String, RuleStats> = counters.mapValues { (_, c) ->
+        RuleStats(c.hits.get(), c.misses.get(), c.revalidations.get())
+    }
+
+    /**
+     * Network interceptor: rewrites the Cache-Control of the response before OkHttp
+     * decides whether to store it.
+     */
+    val networkInterceptor = Interceptor { chain ->
+        val request = chain.request()
+        val response = chain.proceed(request)
+        val rule = ruleFor(request)
+        val cacheControl = when (rule.mode) {
+            CacheMode.NEVER -> "no-store"
+            CacheMode.REVALIDATE -> "no-cache"
+            CacheMode.TTL -> if (rule === defaultRule && isCacheable(response)) null
+            else "public, max-age=${rule.maxAgeSeconds}"
+        }
+        if (cacheControl == null) {
+            response
+        } else {
+            response.newBuilder()
+                .removeHeader(HEADER_PRAGMA)
+                .header(HEADER_CACHE_CONTROL, cacheControl)
+                .build()
+        }
+    }
+
+    /** Application interceptor: classifies each finished call against its rule. */
+    val statsInterceptor = Interceptor { chain ->
+        val request = chain.request()
+        val response = chain.proceed(request)
+        val c = counters.getOrPut(ruleFor(request).name) { Counters() }
+        when {
+            response.cacheResponse != null && response.networkResponse == null -> c.hits.incrementAndGet()
+            response.cacheResponse != null -> c.revalidations.incrementAndGet()
+            response.networkResponse != null -> c.misses.incrementAndGet()
+        }
+        response
+    }
+
+    private fun isCacheable(response: Response): Boolean {
+        if (response.header(HEADER_CACHE_CONTROL) == null) return false
+        val cacheControl = response.cacheControl
+        return !cacheControl.noStore && !cacheControl.noCache &&
+                !cacheControl.mustRevalidate && cacheControl.maxAgeSeconds > 0
+    }
+}
@@ -0,0 +1,119 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Dns
+import java.net.Inet6Address
+import java.net.InetAddress
+import java.net.UnknownHostException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * In-memory TTL cache in front of [delegate].
+ *
+ * Entries older than [refreshAheadFraction] of [ttlMillis] are still served but refreshed
+ * in the background, so a hot host never waits on the resolver. If a refresh fails the
+ * last known addresses are kept. Addresses are interleaved by family (IPv6, IPv4, ...)
+ * so a connect failure on one family moves straight on to the other.
+ */
+class CachingDns(
+    private val delegate: Dns = Dns.SYSTEM,
+    private val ttlMillis: Long = TimeUnit.MINUTES.toMillis(5),
+    private val refreshAheadFraction: Double = 0.75
+) : Dns {
+
+    data class Stats(
+        val lookups: Long,
+        val hits: Long,
+        val misses: Long,
+        val backgroundRefreshes: Long,
+        val averageResolveMillis: Double
+    )
+
+    private class Entry(val addresses: List<InetAddress>, val resolvedAtNanos: Long)
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+    private val refreshing = ConcurrentHashMap.newKeySet<String>()
+
+    private val lookups = AtomicLong()
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val backgroundRefreshes = AtomicLong()
+    private val resolves = AtomicLong()
+    private val resolveNanos = AtomicLong()
+
+    override fun lookup(hostname: String): List<InetAddress> {
+        lookups.incrementAndGet()
+        val entry = entries[hostname]
+        if (entry != null) {
+            val ageMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.resolvedAtNanos)
+            if (ageMillis < ttlMillis) {
+                hits.incrementAndGet()
+                if (ageMillis >= ttlMillis * refreshAheadFraction) {
+                    refreshInBackground(hostname)
+                }
+                return entry.addresses
+            }
+        }
+        misses.incrementAndGet()
+        return try {
+            resolve(hostname)
+        } catch (e: UnknownHostException) {
+            entry?.addresses ?: throw e
+        }
+    }
+
+    fun stats(): Stats {
+        val count = resolves.get()
+        return Stats(
+            lookups = lookups.get(),
+            hits = hits.get(),
+            misses = misses.get(),
+            backgroundRefreshes = backgroundRefreshes.get(),
+            averageResolveMillis = if (count == 0L) 0.0
+            else TimeUnit.NANOSECONDS.toMicros(resolveNanos.get()) / 1000.0 / count
+        )
+    }
+
+    private fun resolve(hostname: String): List<InetAddress> {
+        val start = System.nanoTime()
+        val addresses = interleaveFamilies(delegate.lookup(hostname))
+        val now = System.nanoTime()
+        resolves.incrementAndGet()
+        resolveNanos.addAndGet(now - start)
+        entries[hostname] = Entry(addresses, now)
+        return addresses
+    }
+
+    private fun refreshInBackground(hostname: String) {
+        if (!refreshing.add(hostname)) return
+        backgroundRefreshes.incrementAndGet()
+        executor.execute {
+            try {
+                resolve(hostname)
+            } catch (e: UnknownHostException) {
+                // Keep serving the current entry until it expires.
+            } finally {
+                refreshing.remove(hostname)
+            }
+        }
+    }
+
+    private fun interleaveFamilies(addresses: List<InetAddress>): List<InetAddress> {
+        val (v6, v4) = addresses.partition { it is Inet6Address }
+        if (v6.isEmpty() || v4.isEmpty()) return addresses
+        val result = ArrayList<InetAddress>(addresses.size)
+        for (i in 0 until maxOf(v6.size, v4.size)) {
+            if (i < v6.size) result.add(v6[i])
+            if (i < v4.size) result.add(v4[i])
+        }
+        return result
+    }
+
+    companion object {
+        private val executor = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "dns-refresh").apply { isDaemon = true }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.plcoding.retrofitcrashcourse
+
+/**
+ * Consecutive-failure circuit breaker for one host.
+ *
+ * After [failureThreshold] failures in a row the breaker opens and rejects calls for
+ * [openMillis]; it then lets a single trial call through and closes again if it succeeds.
+ * A trial that ends without an outcome (e.g. it was cancelled) must be handed back with
+ * [releaseTrial], otherwise the breaker would stay half-open and reject every call.
+ */
+class CircuitBreaker(
+    private val failureThreshold: Int,
+    private val openMillis: Long,
+    private val onStateChanged: (State) -> Unit
+) {
+
+    enum class State { CLOSED, OPEN, HALF_OPEN }
+
+    /** What [tryAcquire] granted: an ordinary call, or the single half-open trial. */
+    enum class Permit { NORMAL, TRIAL }
+
+    var state = State.CLOSED
+        private set
+
+    private var consecutiveFailures = 0
+    private var openedAt = 0L
+
+    /** Returns the granted permit, or null when the call must be rejected. */
+    @Synchronized
+    fun tryAcquire(now: Long = System.currentTimeMillis()): Permit? = when (state) {
+        State.CLOSED -> Permit.NORMAL
+        State.HALF_OPEN -> null
+        State.OPEN -> if (now - openedAt >= openMillis) {
+            moveTo(State.HALF_OPEN)
+            Permit.TRIAL
+        } else {
+            null
+        }
+    }
+
+    /**
+     * Returns an unfinished trial: the breaker goes back to [State.OPEN] with its original
+     * opening time, so the next call is let through as a new trial.
+     */
+    @Synchronized
+    fun releaseTrial() {
+        if (state == State.HALF_OPEN) moveTo(State.OPEN)
+    }
+
+    @Synchronized
+    fun onSuccess() {
+        consecutiveFailures = 0
+        if (state != State.CLOSED) moveTo(State.CLOSED)
+    }
+
+    @Synchronized
+    fun onFailure(now: Long = System.currentTimeMillis()) {
+        consecutiveFailures++
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            openedAt = now
+            if (state != State.OPEN) moveTo(State.OPEN)
+        }
+    }
+
+    private fun moveTo(newState: State) {
+        state = newState
+        onStateChanged(newState)
+    }
+}
@@ -0,0 +1,32 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.plcoding.retrofitcrashcourse.SingleFlight.Companion.requestKey
+import retrofit2.Response
+
+/**
+ * [TodoApi] decorator that lets identical concurrent requests share one network call
+ * and one decoded response through [singleFlight].
+ */
+class CoalescingTodoApi(
+    private val delegate: TodoApi,
+    private val singleFlight: SingleFlight
+) : TodoApi by delegate {
+
+    override suspend fun getTodos(): Response<List<Todo>> =
+        singleFlight.run(TODOS_KEY) { delegate.getTodos() }
+
+    override suspend fun getTodos(cacheControl: String): Response<List<Todo>> =
+        singleFlight.run(requestKey("GET", "v1/breeds", "Cache-Control" to cacheControl)) {
+            delegate.getTodos(cacheControl)
+        }
+
+    override suspend fun getTodosPage(limit: Int, page: Int): Response<List<Todo>> =
+        singleFlight.run(requestKey("GET", "v1/breeds", "limit" to limit, "page" to page)) {
+            delegate.getTodosPage(limit, page)
+        }
+
+    companion object {
+        /** [SingleFlight] key of [getTodos], e.g. to check whether a full fetch is running. */
+        val TODOS_KEY = requestKey("GET", "v1/breeds")
+    }
+}
@@ -0,0 +1,27 @@
+package com.plcoding.retrofitcrashcourse
+
+import retrofit2.Response
+
+/**
+ * [TodoApi] decorator that repacks full breeds lists of at least [threshold] rows into a
+ * [ColumnarTodoList] right after decoding, before any cache layer above retains them.
+ */
+class ColumnarTodoApi(
+    private val delegate: TodoApi,
+    private val threshold: Int = DEFAULT_THRESHOLD
+) : TodoApi by delegate {
+
+    override suspend fun getTodos(): Response<List<Todo>> = toColumnar(delegate.getTodos())
+
+    private fun toColumnar(response: Response<List<Todo>>): Response<List<Todo>> {
+        val body = response.body()
+        if (!response.isSuccessful || body == null || body.size < threshold || body is ColumnarTodoList) {
+            return response
+        }
+        return Response.success(ColumnarTodoList.of(body), response.raw())
+    }
+
+    companion object {
+        const val DEFAULT_THRESHOLD = 1_000
+    }
+}
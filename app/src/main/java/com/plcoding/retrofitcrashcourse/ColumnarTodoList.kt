@@ -0,0 +1,119 @@
+package com.plcoding.retrofitcrashcourse
+
+import java.util.BitSet
+
+/**
+ * Read-only, column-oriented [List] of breeds.
+ *
+ * Numeric fields live in primitive [IntArray]s, `completed` in a [BitSet], and every
+ * string (names, titles, image ids and URLs) is stored once in a shared pool and
+ * referenced by index. Rows are rebuilt as [Todo] objects on access, so retained heap
+ * is a handful of arrays instead of two objects plus boxed fields per row.
+ *
+ * Diffing is not column-aware: [TodoAdapter]'s AsyncListDiffer compares rows through
+ * its ItemCallback, which rebuilds them. Only lists of at least
+ * [ColumnarTodoApi.DEFAULT_THRESHOLD] rows are stored this way, far above the size of
+ * the breeds feed, so the adapter normally diffs plain lists.
+ */
+class ColumnarTodoList private constructor(
+    private val ids: IntArray,
+    private val userIds: IntArray,
+    private val widths: IntArray,
+    private val heights: IntArray,
+    private val completed: BitSet,
+    private val nameRefs: IntArray,
+    private val titleRefs: IntArray,
+    private val imageIdRefs: IntArray,
+    private val urlRefs: IntArray,
+    private val strings: Array<String>
+) : AbstractList<Todo>(), RandomAccess {
+
+    override val size: Int get() = ids.size
+
+    override fun get(index: Int): Todo {
+        val imageIdRef = imageIdRefs[index]
+        return Todo(
+            completed = completed[index],
+            id = ids[index],
+            title = strings[titleRefs[index]],
+            userId = userIds[index],
+            name = strings[nameRefs[index]],
+            image = if (imageIdRef == NO_IMAGE) null else Image(
+                height = heights[index],
+                id = strings[imageIdRef],
+                url = strings[urlRefs[index]],
+                width = widths[index]
+            )
+        )
+    }
+
+    /** Column-wise comparison when both sides are columnar; no rows are materialized. */
+    override fun equals(other: Any?): Boolean {
+        if (other === this) return true
+        if (other !is ColumnarTodoList) return super.equals(other)
+        if (size != other.size) return false
+        for (i in 0 until size) {
+            if (ids[i] != other.ids[i] ||
+                userIds[i] != other.userIds[i] ||
+                widths[i] != other.widths[i] ||
+                heights[i] != other.heights[i] ||
+                completed[i] != other.completed[i] ||
+                strings[nameRefs[i]] != other.strings[other.nameRefs[i]] ||
+                strings[titleRefs[i]] != other.strings[other.titleRefs[i]] ||
+                stringOrNull(imageIdRefs[i]) != other.stringOrNull(other.imageIdRefs[i]) ||
+                stringOrNull(urlRefs[i]) != other.stringOrNull(other.urlRefs[i])
+            ) return false
+        }
+        return true
+    }
+
+    override fun hashCode(): Int = super.hashCode()
+
+    private fun stringOrNull(ref: Int): String? = if (ref == NO_IMAGE) null else strings[ref]
+
+    companion object {
+        private const val NO_IMAGE = -1
+
+        fun of(todos: List<Todo>): ColumnarTodoList {
+            val size = todos.size
+            val ids = IntArray(size)
+            val userIds = IntArray(size)
+            val widths = IntArray(size)
+            val heights = IntArray(size)
+            val completed = BitSet(size)
+            val nameRefs = IntArray(size)
+            val titleRefs = IntArray(size)
+            val imageIdRefs = IntArray(size)
+            val urlRefs = IntArray(size)
+            val pool = HashMap<String, Int>()
+            val strings = ArrayList<String>()
+            fun intern(value: String): Int = pool.getOrPut(value) {
+                strings.add(value)
+                strings.size - 1
+            }
+
+            todos.forEachIndexed { i, todo ->
+                val image = todo.image
+                ids[i] = todo.id
+                userIds[i] = todo.userId
+                completed[i] = todo.completed
+                nameRefs[i] = intern(todo.name)
+                titleRefs[i] = intern(todo.title)
+                if (image == null) {
+                    imageIdRefs[i] = NO_IMAGE
+                    urlRefs[i] = NO_IMAGE
+                } else {
+                    imageIdRefs[i] = intern(image.id)
+                    urlRefs[i] = intern(image.url)
+                    widths[i] = image.width
+                    heights[i] = image.height
+                }
+            }
+            return ColumnarTodoList(
+                ids, userIds, widths, heights, completed,
+                nameRefs, titleRefs, imageIdRefs, urlRefs,
+                strings.toTypedArray()
+            )
+        }
+    }
+}
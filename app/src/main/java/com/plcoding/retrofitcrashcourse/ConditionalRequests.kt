@@ -0,0 +1,125 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.util.LruCache
+import okhttp3.CacheControl
+import okhttp3.Interceptor
+import okhttp3.Request
+import retrofit2.Invocation
+import retrofit2.Response
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Conditional revalidation with `If-None-Match` / `If-Modified-Since` for endpoints whose
+ * decoded result is still held in memory.
+ *
+ * Only endpoints marked [Revalidate], whose callers pass every response through [resolve],
+ * take part. Validators and decoded bodies are keyed by endpoint method and URL, and
+ * [interceptor] only makes a request conditional when [resolve] has a decoded body for
+ * that key, so a `304 Not Modified` can always be answered from memory without running
+ * the converter again.
+ *
+ * Validators added here make OkHttp bypass its own cache, so a request is only made
+ * conditional once the disk cache no longer holds a fresh copy.
+ */
+object ConditionalRequests {
+
+    data class Stats(val notModified: Long, val bytesSaved: Long)
+
+    private data class Validators(val etag: String?, val lastModified: String?, val bodyBytes: Long)
+
+    private const val MAX_DECODED_ENTRIES = 32
+
+    /** Served from the disk cache only while the entry is fresh; a 504 otherwise. */
+    private val FRESH_CACHE_ONLY = CacheControl.Builder().onlyIfCached().build()
+
+    private val validators = ConcurrentHashMap<String, Validators>()
+    private val decoded = LruCache<String, Any>(MAX_DECODED_ENTRIES)
+    private val notModified = AtomicLong()
+    private val bytesSaved = AtomicLong()
+
+    fun stats() = Stats(notModified.get(), bytesSaved.get())
+
+    /**
+     * Swaps a 304 for a successful response carrying the body decoded last time and
+     * remembers successful bodies for the next revalidation.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> resolve(response: Response<T>): Response<T> {
+        val key = keyOf(response.raw().request) ?: return response
+        if (response.code() == 304) {
+            val body = decoded.get(key) as T? ?: return response
+            val raw = response.raw().newBuilder()
+                .code(200)
+                .message("Not Modified")
+                .build()
+            return Response.success(body, raw)
+        }
+        val body = response.body()
+        if (response.isSuccessful && body != null && validators.containsKey(key)) {
+            decoded.put(key, body)
+        }
+        return response
+    }
+
+    /** Validator key for [request], or null unless its endpoint is marked [Revalidate]. */
+    private fun keyOf(request: Request): String? {
+        val method = request.tag(Invocation::class.java)?.method() ?: return null
+        if (!method.isAnnotationPresent(Revalidate::class.java)) return null
+        return "${method.name} ${request.url}"
+    }
+
+    val interceptor = Interceptor { chain ->
+        val request = chain.request()
+        val key = keyOf(request) ?: return@Interceptor chain.proceed(request)
+        val known = validators[key]
+        val conditional = known != null &&
+                request.method == "GET" &&
+                !request.cacheControl.onlyIfCached &&
+                request.cacheControl.maxStaleSeconds == -1 &&
+                request.header("If-None-Match") == null &&
+                request.header("If-Modified-Since") == null &&
+                decoded.get(key) != null
+
+        if (conditional && !request.cacheControl.noCache) {
+            val cached = chain.proceed(request.newBuilder().cacheControl(FRESH_CACHE_ONLY).build())
+            if (cached.isSuccessful) return@Interceptor cached
+            cached.close()
+        }
+
+        val response = if (conditional && known != null) {
+            chain.proceed(request.newBuilder().apply {
+                known.etag?.let { header("If-None-Match", it) }
+                known.lastModified?.let { header("If-Modified-Since", it) }
+            }.build())
+        } else {
+            chain.proceed(request)
+        }
+
+        val networkResponse = response.networkResponse
+        if (response.code == 304 && conditional && known != null) {
+            notModified.incrementAndGet()
+            if (known.bodyBytes > 0) bytesSaved.addAndGet(known.bodyBytes)
+        } else if (response.isSuccessful && networkResponse != null) {
+            val etag = networkResponse.header("ETag")
+            val lastModified = networkResponse.header("Last-Modified")
+            if (etag != null || lastModified != null) {
+                val bodyBytes = networkResponse.header("Content-Length")?.toLongOrNull()
+                    ?: response.body?.contentLength() ?: -1L
+                validators[key] = Validators(etag, lastModified, bodyBytes)
+            } else {
+                validators.remove(key)
+                decoded.remove(key)
+            }
+        }
+        response
+    }
+}
+
+/**
+ * Marks a [TodoApi] method whose responses always pass through [ConditionalRequests.resolve],
+ * so it can be revalidated conditionally and answered from memory on a 304.
+ */
+@Target(AnnotationTarget.FUNCTION)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class Revalidate
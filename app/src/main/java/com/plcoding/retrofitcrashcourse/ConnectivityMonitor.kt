@@ -0,0 +1,103 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.os.Build
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+
+/**
+ * Keeps an in-memory snapshot of connectivity that is updated by a single
+ * [ConnectivityManager.NetworkCallback], so readers never make a binder call.
+ *
+ * [snapshot] is a plain volatile read and safe to call from interceptors on every
+ * request; the UI can collect [snapshots] instead.
+ */
+object ConnectivityMonitor {
+
+    enum class Transport { NONE, WIFI, CELLULAR, ETHERNET, OTHER }
+
+    data class Snapshot(
+        val isConnected: Boolean,
+        val isMetered: Boolean,
+        val transport: Transport
+    )
+
+    private val DISCONNECTED = Snapshot(isConnected = false, isMetered = false, transport = Transport.NONE)
+
+    private val state = MutableStateFlow(DISCONNECTED)
+
+    val snapshots: StateFlow<Snapshot> get() = state
+
+    val snapshot: Snapshot get() = state.value
+
+    @Volatile
+    private var registered = false
+
+    fun register(context: Context) {
+        if (registered) return
+        synchronized(this) {
+            if (registered) return
+            val cm = context.applicationContext
+                .getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+            state.value = readActiveNetwork(cm)
+
+            val callback = object : ConnectivityManager.NetworkCallback() {
+                override fun onCapabilitiesChanged(network: Network, capabilities: NetworkCapabilities) {
+                    state.value = fromCapabilities(capabilities)
+                }
+
+                override fun onLost(network: Network) {
+                    state.value = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                        DISCONNECTED
+                    } else {
+                        // Without a default-network callback another network may still be up.
+                        readActiveNetwork(cm)
+                    }
+                }
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                cm.registerDefaultNetworkCallback(callback)
+            } else {
+                cm.registerNetworkCallback(
+                    NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .build(),
+                    callback
+                )
+            }
+            registered = true
+        }
+    }
+
+    private fun fromCapabilities(capabilities: NetworkCapabilities) = Snapshot(
+        isConnected = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET),
+        isMetered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+        transport = when {
+            capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI) -> Transport.WIFI
+            capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR) -> Transport.CELLULAR
+            capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET) -> Transport.ETHERNET
+            else -> Transport.OTHER
+        }
+    )
+
+    /** One-off synchronous read, only used at registration and on pre-N network loss. */
+    @Suppress("DEPRECATION")
+    private fun readActiveNetwork(cm: ConnectivityManager): Snapshot {
+        val info = cm.activeNetworkInfo
+        if (info == null || !info.isConnected) return DISCONNECTED
+        return Snapshot(
+            isConnected = true,
+            isMetered = cm.isActiveNetworkMetered,
+            transport = when (info.type) {
+                ConnectivityManager.TYPE_WIFI -> Transport.WIFI
+                ConnectivityManager.TYPE_MOBILE -> Transport.CELLULAR
+                ConnectivityManager.TYPE_ETHERNET -> Transport.ETHERNET
+                else -> Transport.OTHER
+            }
+        )
+    }
+}
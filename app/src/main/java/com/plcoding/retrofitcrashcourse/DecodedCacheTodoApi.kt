@@ -0,0 +1,16 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.plcoding.retrofitcrashcourse.SingleFlight.Companion.requestKey
+import retrofit2.Response
+
+/** [TodoApi] decorator that serves repeated requests from [DecodedResponseCache]. */
+class DecodedCacheTodoApi(private val delegate: TodoApi) : TodoApi by delegate {
+
+    override suspend fun getTodos(): Response<List<Todo>> =
+        DecodedResponseCache.getOrLoad(requestKey("GET", "v1/breeds")) { delegate.getTodos() }
+
+    override suspend fun getTodosPage(limit: Int, page: Int): Response<List<Todo>> =
+        DecodedResponseCache.getOrLoad(requestKey("GET", "v1/breeds", "limit" to limit, "page" to page)) {
+            delegate.getTodosPage(limit, page)
+        }
+}
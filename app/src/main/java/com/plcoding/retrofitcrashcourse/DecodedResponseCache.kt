@@ -0,0 +1,77 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.util.LruCache
+import okhttp3.Interceptor
+import retrofit2.Response
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * First cache tier: decoded Retrofit responses held in memory in front of the OkHttp
+ * disk cache, so repeated screens skip both disk I/O and JSON decoding.
+ *
+ * An entry lives only as long as the HTTP cache entry it came from is fresh (max-age
+ * counted from when the response was originally received), and is dropped as soon as
+ * the network writes a new response for the same URL. Size is bounded by the total
+ * number of decoded list items.
+ */
+object DecodedResponseCache {
+
+    data class Stats(val hits: Long, val misses: Long)
+
+    private const val MAX_ITEMS = 5_000
+
+    private class Entry(val response: Response<*>, val url: String, val expiresAtMillis: Long)
+
+    private val entries = object : LruCache<String, Entry>(MAX_ITEMS) {
+        override fun sizeOf(key: String, value: Entry): Int =
+            ((value.response.body() as? Collection<*>)?.size ?: 1).coerceAtLeast(1)
+    }
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    fun stats() = Stats(hits.get(), misses.get())
+
+    @Suppress("UNCHECKED_CAST")
+    suspend fun <T> getOrLoad(key: String, load: suspend () -> Response<T>): Response<T> {
+        val entry = entries.get(key)
+        if (entry != null && System.currentTimeMillis() < entry.expiresAtMillis) {
+            hits.incrementAndGet()
+            return entry.response as Response<T>
+        }
+        misses.incrementAndGet()
+        val response = load()
+        val raw = response.raw()
+        val maxAgeSeconds = raw.cacheControl.maxAgeSeconds
+        if (response.isSuccessful && response.body() != null && maxAgeSeconds > 0) {
+            val expiresAt = raw.receivedResponseAtMillis + TimeUnit.SECONDS.toMillis(maxAgeSeconds.toLong())
+            entries.put(key, Entry(response, raw.request.url.toString(), expiresAt))
+        } else {
+            entries.remove(key)
+        }
+        return response
+    }
+
+    /** Drops every decoded entry that came from [url]. */
+    fun invalidate(url: String) {
+        entries.snapshot().forEach { (key, entry) ->
+            if (entry.url == url) entries.remove(key)
+        }
+    }
+
+    fun invalidateAll() {
+        entries.evictAll()
+    }
+
+    /**
+     * Network interceptor hook: a fresh network response replaces the HTTP cache entry
+     * for its URL, so the decoded copy of the old one must go too.
+     */
+    val networkInterceptor = Interceptor { chain ->
+        val response = chain.proceed(chain.request())
+        if (response.isSuccessful && response.request.method == "GET") {
+            invalidate(response.request.url.toString())
+        }
+        response
+    }
+}
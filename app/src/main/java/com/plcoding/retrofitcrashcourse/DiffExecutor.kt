@@ -0,0 +1,107 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.os.Process
+import java.util.ArrayDeque
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Background thread for `AsyncListDiffer`s, running at background priority.
+ *
+ * Each differ gets its own [Channel] with room for a single pending diff. When a newer
+ * `submitList` arrives on a channel while its previous diff is still queued, the queued
+ * one is dropped: that differ would discard its result anyway, so only its running diff
+ * and its latest one are ever computed. Channels never drop each other's diffs. Each
+ * diff is timed and its list sizes recorded.
+ */
+class DiffExecutor {
+
+    data class DiffRecord(val oldSize: Int, val newSize: Int, val durationMillis: Long)
+
+    data class Stats(val completed: Long, val dropped: Long, val recent: List<DiffRecord>)
+
+    private val completed = AtomicLong()
+    private val dropped = AtomicLong()
+    private val recent = ArrayDeque<DiffRecord>(RECENT_DIFFS)
+
+    /** Duration of every completed diff. */
+    val durations = LatencyHistogram()
+
+    // Unbounded, but every channel has at most one task queued at a time.
+    private val pool = ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS,
+        LinkedBlockingQueue()
+    ) { runnable ->
+        Thread({
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+            runnable.run()
+        }, "todo-diff")
+    }
+
+    /** Executor for one `AsyncListDiffer`; use a new channel per differ. */
+    inner class Channel : Executor {
+
+        private var pending: Runnable? = null
+
+        @Volatile
+        private var pendingOldSize = 0
+
+        @Volatile
+        private var pendingNewSize = 0
+
+        /**
+         * Called right before `submitList`; `AsyncListDiffer` hands its diff to [execute]
+         * synchronously from that call, so the sizes belong to that diff.
+         */
+        fun onSubmit(oldSize: Int, newSize: Int) {
+            pendingOldSize = oldSize
+            pendingNewSize = newSize
+        }
+
+        override fun execute(command: Runnable) {
+            val task = timed(command, pendingOldSize, pendingNewSize)
+            val schedule = synchronized(this) {
+                val idle = pending == null
+                if (!idle) dropped.incrementAndGet()
+                pending = task
+                idle
+            }
+            if (schedule) pool.execute { runPending() }
+        }
+
+        private fun runPending() {
+            val task = synchronized(this) { pending.also { pending = null } } ?: return
+            task.run()
+        }
+    }
+
+    fun newChannel() = Channel()
+
+    private fun timed(command: Runnable, oldSize: Int, newSize: Int) = Runnable {
+        val start = System.nanoTime()
+        command.run()
+        val millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        durations.record(millis)
+        completed.incrementAndGet()
+        synchronized(recent) {
+            if (recent.size == RECENT_DIFFS) recent.removeFirst()
+            recent.addLast(DiffRecord(oldSize, newSize, millis))
+        }
+    }
+
+    fun stats(): Stats = Stats(
+        completed = completed.get(),
+        dropped = dropped.get(),
+        recent = synchronized(recent) { recent.toList() }
+    )
+
+    companion object {
+        private const val RECENT_DIFFS = 32
+
+        /** Shared by adapters across activity recreations so they queue behind one thread. */
+        val shared by lazy { DiffExecutor() }
+    }
+}
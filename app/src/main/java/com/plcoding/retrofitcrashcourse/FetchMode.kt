@@ -0,0 +1,25 @@
+package com.plcoding.retrofitcrashcourse
+
+enum class FetchMode {
+    /** Always wait for the network response. */
+    NETWORK,
+
+    /** Only read the offline cache; used when there is no connection. */
+    CACHE_ONLY,
+
+    /** Decode the network response incrementally and emit the growing list batch by batch. */
+    STREAMING,
+
+    /**
+     * Fetch from the network but only index the response; rows are decoded when the
+     * adapter binds them. Not written to the local store, which would decode every row.
+     */
+    LAZY,
+
+    /**
+     * Emit the cached list at once, then the network result if it differs.
+     * When nothing is cached yet it joins a full fetch already in flight, or falls back
+     * to [STREAMING] if there is none.
+     */
+    STALE_WHILE_REVALIDATE
+}
@@ -0,0 +1,150 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Call
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Applies per-host adaptive timeouts from [LatencyTracker] and hedges slow GETs.
+ * Latency samples are taken per network try by [LatencyTracker.networkInterceptor].
+ *
+ * A GET runs as a separate attempt on [client]; if it has not answered after the host's
+ * p95 latency a second, identical attempt is started and the first successful response
+ * wins. The other attempt is cancelled. An error response is only returned once no
+ * attempt is left that could still succeed. Hosts without enough samples yet are never
+ * hedged.
+ *
+ * Must come right after [Resilience.interceptor], which retries the outer call as a whole
+ * and lets attempts (see [isAttempt]) through untouched, so one logical call is never
+ * retried once per attempt. The outer call does nothing but wait on its attempts, which
+ * pass through the rest of the chain themselves. [client] must therefore be the client
+ * this interceptor is installed on; see [HttpClientFactory.derive].
+ */
+class HedgingInterceptor(private val client: () -> OkHttpClient) : Interceptor {
+
+    data class Stats(val hedged: Long, val hedgeWins: Long)
+
+    private class Attempt
+
+    private class Outcome(val call: Call, val response: Response?, val error: IOException?)
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (isAttempt(request)) {
+            return proceedWithTimeouts(chain, request)
+        }
+        val host = request.url.host
+        val hedgeDelay = LatencyTracker.hedgeDelayMillis(host)
+        if (hedgeDelay == null || request.method != "GET" || request.cacheControl.onlyIfCached) {
+            return proceedWithTimeouts(chain, request)
+        }
+        return hedge(chain, request, hedgeDelay)
+    }
+
+    private fun proceedWithTimeouts(chain: Interceptor.Chain, request: Request): Response {
+        val timeout = LatencyTracker.timeoutMillis(request.url.host).toInt()
+        return chain
+            .withConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+            .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+            .proceed(request)
+    }
+
+    private fun hedge(chain: Interceptor.Chain, request: Request, hedgeDelay: Long): Response {
+        val attemptRequest = request.newBuilder().tag(Attempt::class.java, Attempt()).build()
+        val outcomes = LinkedBlockingQueue<Outcome>()
+        val lock = Any()
+        var decided = false
+        val calls = ArrayList<Call>(2)
+
+        fun launch(): Call {
+            val call = client().newCall(attemptRequest)
+            calls.add(call)
+            executor.execute {
+                val outcome = try {
+                    Outcome(call, call.execute(), null)
+                } catch (e: IOException) {
+                    Outcome(call, null, e)
+                }
+                synchronized(lock) {
+                    if (decided) outcome.response?.close() else outcomes.add(outcome)
+                }
+            }
+            return call
+        }
+
+        launch()
+        var pending = 1
+        var hedgeCall: Call? = null
+        var winner: Call? = null
+        var fallback: Outcome? = null
+        var lastError: IOException? = null
+        var next = outcomes.poll(hedgeDelay, TimeUnit.MILLISECONDS)
+        if (next == null && !chain.call().isCanceled()) {
+            hedgeCall = launch()
+            pending++
+            hedged.incrementAndGet()
+        }
+        try {
+            while (true) {
+                if (chain.call().isCanceled()) throw IOException("Canceled")
+                val outcome = next ?: outcomes.poll(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS)
+                next = null
+                if (outcome == null) continue
+                pending--
+                val response = outcome.response
+                if (response != null && isUsable(response)) {
+                    winner = outcome.call
+                    if (outcome.call === hedgeCall) hedgeWins.incrementAndGet()
+                    return response
+                }
+                if (response == null) {
+                    lastError = outcome.error
+                } else if (fallback == null) {
+                    fallback = outcome
+                } else {
+                    response.close()
+                }
+                if (pending == 0) {
+                    val last = fallback ?: throw lastError ?: IOException("All attempts failed")
+                    winner = last.call
+                    return last.response!!
+                }
+            }
+        } finally {
+            synchronized(lock) {
+                decided = true
+                generateSequence { outcomes.poll() }.forEach { it.response?.close() }
+            }
+            fallback?.let { if (it.call !== winner) it.response?.close() }
+            calls.forEach { if (it !== winner) it.cancel() }
+        }
+    }
+
+    /** A 304 is handed on to [ConditionalRequests]' callers, which resolve it. */
+    private fun isUsable(response: Response): Boolean =
+        response.isSuccessful || response.code == HttpURLConnection.HTTP_NOT_MODIFIED
+
+    companion object {
+        private const val CANCEL_CHECK_MILLIS = 250L
+
+        private val hedged = AtomicLong()
+        private val hedgeWins = AtomicLong()
+
+        private val executor = Executors.newCachedThreadPool { runnable ->
+            Thread(runnable, "hedged-call").apply { isDaemon = true }
+        }
+
+        fun stats() = Stats(hedged.get(), hedgeWins.get())
+
+        /** True for the requests of the attempts a hedged call is split into. */
+        fun isAttempt(request: Request): Boolean = request.tag(Attempt::class.java) != null
+    }
+}
@@ -0,0 +1,130 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Cache
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Process-wide owner of the one [OkHttpClient] every Retrofit service is built on.
+ *
+ * Per-feature clients must be built with [derive] so they keep sharing the connection
+ * pool, dispatcher and the `Todo-api-path` disk cache, and so hedged attempts run
+ * through their own interceptors.
+ */
+object HttpClientFactory {
+
+    const val BASE_URL = "https://api.thedogapi.com/"
+
+    private const val CACHE_PATH = "Todo-api-path"
+    private const val CACHE_SIZE = 5L * 1024 * 1024
+
+    data class Config(
+        val maxIdleConnections: Int = 5,
+        val keepAliveMinutes: Long = 5,
+        val maxRequests: Int = 64,
+        val maxRequestsPerHost: Int = 5,
+        val protocols: List<Protocol> = listOf(Protocol.HTTP_2, Protocol.HTTP_1_1)
+    )
+
+    data class Stats(
+        val connectionCount: Int,
+        val idleConnectionCount: Int,
+        val runningCalls: Int,
+        val queuedCalls: Int,
+        val connectionsAcquired: Long,
+        val connectionsOpened: Long
+    ) {
+        /** Share of acquired connections that came from the pool instead of a new handshake. */
+        val reuseRate: Double
+            get() = if (connectionsAcquired == 0L) 0.0
+            else (connectionsAcquired - connectionsOpened).coerceAtLeast(0).toDouble() / connectionsAcquired
+    }
+
+    /** Must be assigned before the first call to [client]; later changes are ignored. */
+    @Volatile
+    var config = Config()
+
+    private val connectionPool by lazy {
+        ConnectionPool(config.maxIdleConnections, config.keepAliveMinutes, TimeUnit.MINUTES)
+    }
+
+    private val dispatcher by lazy {
+        Dispatcher().apply {
+            maxRequests = config.maxRequests
+            maxRequestsPerHost = config.maxRequestsPerHost
+        }
+    }
+
+    val cache: Cache by lazy {
+        Cache(File(MyApplication.getInstance().cacheDir, CACHE_PATH), CACHE_SIZE)
+    }
+
+    /** Resolver shared by every client; see [CachingDns.stats] for hit rate and resolve time. */
+    val dns = CachingDns()
+
+    val client: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .connectionPool(connectionPool)
+            .dispatcher(dispatcher)
+            .protocols(config.protocols)
+            .dns(dns)
+            .cache(cache)
+            .addInterceptor(Resilience.interceptor)
+            .addInterceptor(HedgingInterceptor { client })
+            .addInterceptor(CachePolicyEngine.statsInterceptor)
+            .addInterceptor(ConditionalRequests.interceptor)
+            .addNetworkInterceptor(CachePolicyEngine.networkInterceptor)
+            .addNetworkInterceptor(DecodedResponseCache.networkInterceptor)
+            .addNetworkInterceptor(LatencyTracker.networkInterceptor)
+            .eventListenerFactory(NetworkMetrics.eventListenerFactory)
+            .build()
+    }
+
+    /**
+     * Builds a client on top of [client]. A plain [OkHttpClient.newBuilder] copy would keep
+     * a [HedgingInterceptor] that starts its attempts on the base client, skipping any
+     * interceptor added by [configure]; here it is replaced by one bound to the new client.
+     */
+    fun derive(configure: OkHttpClient.Builder.() -> Unit): OkHttpClient {
+        lateinit var derived: OkHttpClient
+        val builder = client.newBuilder()
+        val interceptors = builder.interceptors()
+        for (i in interceptors.indices) {
+            if (interceptors[i] is HedgingInterceptor) {
+                interceptors[i] = HedgingInterceptor { derived }
+            }
+        }
+        builder.configure()
+        derived = builder.build()
+        return derived
+    }
+
+    /** Clears the disk cache together with the decoded copies built from it. */
+    fun clearCache() {
+        cache.evictAll()
+        DecodedResponseCache.invalidateAll()
+    }
+
+    fun retrofit(client: OkHttpClient = this.client): Retrofit =
+        Retrofit.Builder()
+            .baseUrl(BASE_URL)
+            .addConverterFactory(LazyTodoListConverterFactory())
+            .addConverterFactory(GsonConverterFactory.create(TodoJson.gson))
+            .client(client)
+            .build()
+
+    fun stats(): Stats = Stats(
+        connectionCount = connectionPool.connectionCount(),
+        idleConnectionCount = connectionPool.idleConnectionCount(),
+        runningCalls = dispatcher.runningCallsCount(),
+        queuedCalls = dispatcher.queuedCallsCount(),
+        connectionsAcquired = NetworkMetrics.connectionsAcquired.get(),
+        connectionsOpened = NetworkMetrics.connectionsOpened.get()
+    )
+}
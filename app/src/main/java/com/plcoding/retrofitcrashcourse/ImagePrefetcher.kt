@@ -0,0 +1,91 @@
+package com.plcoding.retrofitcrashcourse
+
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.squareup.picasso.Callback
+import com.squareup.picasso.Picasso
+
+/**
+ * Warms Picasso's memory cache with the images of the next [distance] rows in the
+ * direction of scrolling, at low priority and at the same size [ImageRequests] binds
+ * them. Prefetches that fall out of that window are cancelled. [recordBind] tracks how
+ * often a bound row's image was already prefetched, which is the number to watch when
+ * tuning [distance].
+ *
+ * Main thread only.
+ */
+class ImagePrefetcher(
+    private val adapter: TodoAdapter,
+    private val distance: Int = 6
+) : RecyclerView.OnScrollListener() {
+
+    data class Stats(val hits: Long, val misses: Long, val cancelled: Long) {
+        val hitRate: Double get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+    }
+
+    private data class PrefetchTag(val url: String)
+
+    private val inFlight = HashMap<Int, String>()
+    private val prefetched = object : LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Boolean>?) =
+            size > MAX_REMEMBERED
+    }
+    private var hits = 0L
+    private var misses = 0L
+    private var cancelled = 0L
+
+    fun stats() = Stats(hits, misses, cancelled)
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val first = layoutManager.findFirstVisibleItemPosition()
+        val last = layoutManager.findLastVisibleItemPosition()
+        if (first == RecyclerView.NO_POSITION) return
+        val todos = adapter.todos
+        val window = if (dy >= 0) {
+            (last + 1)..minOf(last + distance, todos.size - 1)
+        } else {
+            maxOf(first - distance, 0) until first
+        }
+
+        val iterator = inFlight.entries.iterator()
+        while (iterator.hasNext()) {
+            val (position, url) = iterator.next()
+            if (position !in window) {
+                Picasso.get().cancelTag(PrefetchTag(url))
+                iterator.remove()
+                cancelled++
+            }
+        }
+
+        val targetWidth = adapter.imageTargetWidth.takeIf { it > 0 } ?: recyclerView.width
+        for (position in window) {
+            val image = todos[position].image ?: continue
+            val url = ImageRequests.urlOf(image) ?: continue
+            if (inFlight.containsKey(position) || prefetched.containsKey(url)) continue
+            inFlight[position] = url
+            ImageRequests.load(image, targetWidth)
+                .priority(Picasso.Priority.LOW)
+                .tag(PrefetchTag(url))
+                .fetch(object : Callback {
+                    override fun onSuccess() {
+                        inFlight.remove(position)
+                        prefetched[url] = true
+                    }
+
+                    override fun onError(e: Exception?) {
+                        inFlight.remove(position)
+                    }
+                })
+        }
+    }
+
+    /** Called by the adapter whenever a row starts loading [url]. */
+    fun recordBind(url: String) {
+        if (prefetched.containsKey(url)) hits++ else misses++
+    }
+
+    companion object {
+        private const val MAX_REMEMBERED = 256
+    }
+}
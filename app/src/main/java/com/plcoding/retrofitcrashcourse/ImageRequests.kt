@@ -0,0 +1,66 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.Drawable
+import com.squareup.picasso.Picasso
+import com.squareup.picasso.RequestCreator
+
+/**
+ * Builds every Picasso request for breed images so binds and prefetches decode at the
+ * same downsampled size and therefore share memory-cache entries.
+ *
+ * The target width is rounded up to a [WIDTH_BUCKET_PX] bucket, which keeps the number
+ * of distinct cache keys small across slightly different view widths, and the height is
+ * derived from the API's `Image.width`/`Image.height` before anything is fetched.
+ */
+object ImageRequests {
+
+    private const val WIDTH_BUCKET_PX = 128
+
+    /** Used for rows without usable image metadata. */
+    const val DEFAULT_ASPECT_RATIO = 4f / 3f
+
+    /** Muted colors for placeholders, picked per image so neighbouring rows differ. */
+    private val PLACEHOLDER_COLORS = intArrayOf(
+        0xFFD7CCC8.toInt(), 0xFFCFD8DC.toInt(), 0xFFD1C4E9.toInt(),
+        0xFFC8E6C9.toInt(), 0xFFFFE0B2.toInt(), 0xFFB3E5FC.toInt()
+    )
+
+    /** Width / height of [image] from the API metadata. */
+    fun aspectRatio(image: Image?): Float =
+        if (image != null && image.width > 0 && image.height > 0) {
+            image.width.toFloat() / image.height
+        } else {
+            DEFAULT_ASPECT_RATIO
+        }
+
+    /** Flat color shown until the bitmap arrives; costs nothing to draw or decode. */
+    fun placeholder(image: Image?): Drawable {
+        val key = image?.id?.hashCode() ?: 0
+        return ColorDrawable(PLACEHOLDER_COLORS[(key and Int.MAX_VALUE) % PLACEHOLDER_COLORS.size])
+    }
+
+    /**
+     * The image URL, or null when it is missing or blank. Picasso rejects an empty path,
+     * so a blank URL is treated as no image and only the placeholder is shown.
+     */
+    fun urlOf(image: Image?): String? = image?.url?.takeIf { it.isNotBlank() }
+
+    fun bucketWidth(viewWidthPx: Int): Int =
+        ((viewWidthPx + WIDTH_BUCKET_PX - 1) / WIDTH_BUCKET_PX) * WIDTH_BUCKET_PX
+
+    fun load(image: Image?, targetWidthPx: Int): RequestCreator {
+        val url = urlOf(image)
+        val creator = Picasso.get().load(url)
+        if (image == null || url == null || targetWidthPx <= 0) return creator
+        val width = bucketWidth(targetWidthPx)
+        val height = if (image.width > 0 && image.height > 0) {
+            (width.toLong() * image.height / image.width).toInt().coerceAtLeast(1)
+        } else {
+            0
+        }
+        return creator
+            .resize(width, height)
+            .onlyScaleDown()
+    }
+}
@@ -0,0 +1,70 @@
+package com.plcoding.retrofitcrashcourse
+
+import org.json.JSONArray
+import org.json.JSONObject
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free histogram of durations with power-of-two millisecond buckets
+ * (`<=1`, `<=2`, `<=4`, ... `<=65536`, overflow). Percentiles are bucket upper bounds.
+ */
+class LatencyHistogram {
+
+    private val buckets = AtomicLongArray(BUCKET_COUNT + 1)
+    private val count = AtomicLong()
+    private val sumMillis = AtomicLong()
+    private val maxMillis = AtomicLong()
+
+    fun record(millis: Long) {
+        val value = millis.coerceAtLeast(0)
+        buckets.incrementAndGet(bucketFor(value))
+        count.incrementAndGet()
+        sumMillis.addAndGet(value)
+        var max = maxMillis.get()
+        while (value > max && !maxMillis.compareAndSet(max, value)) {
+            max = maxMillis.get()
+        }
+    }
+
+    fun count(): Long = count.get()
+
+    /** Upper bound of the bucket holding the [p] quantile, or 0 when empty. */
+    fun percentile(p: Double): Long {
+        val total = count.get()
+        if (total == 0L) return 0
+        val rank = Math.ceil(total * p).toLong().coerceAtLeast(1)
+        var seen = 0L
+        for (i in 0..BUCKET_COUNT) {
+            seen += buckets.get(i)
+            if (seen >= rank) return if (i == BUCKET_COUNT) maxMillis.get() else 1L shl i
+        }
+        return maxMillis.get()
+    }
+
+    fun toJson(): JSONObject {
+        val total = count.get()
+        val counts = JSONArray()
+        for (i in 0..BUCKET_COUNT) {
+            counts.put(buckets.get(i))
+        }
+        return JSONObject()
+            .put("count", total)
+            .put("meanMillis", if (total == 0L) 0.0 else sumMillis.get().toDouble() / total)
+            .put("maxMillis", maxMillis.get())
+            .put("p50Millis", percentile(0.50))
+            .put("p90Millis", percentile(0.90))
+            .put("p99Millis", percentile(0.99))
+            .put("buckets", counts)
+    }
+
+    private fun bucketFor(millis: Long): Int {
+        if (millis <= 1) return 0
+        val bucket = 64 - java.lang.Long.numberOfLeadingZeros(millis - 1)
+        return bucket.coerceAtMost(BUCKET_COUNT)
+    }
+
+    companion object {
+        private const val BUCKET_COUNT = 17
+    }
+}
@@ -0,0 +1,68 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Interceptor
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps a rolling window of recent network latencies per host and derives
+ * percentiles from it for [HedgingInterceptor]. Samples come from [networkInterceptor],
+ * one per network try, so retries, backoff and cache hits never skew them.
+ */
+object LatencyTracker {
+
+    private const val WINDOW_SIZE = 64
+    private const val MIN_SAMPLES = 20
+
+    private const val DEFAULT_TIMEOUT_MILLIS = 15_000L
+    private const val MIN_TIMEOUT_MILLIS = 5_000L
+    private const val MAX_TIMEOUT_MILLIS = 30_000L
+    private const val TIMEOUT_P99_MULTIPLIER = 3
+
+    private class Window {
+        private val samples = LongArray(WINDOW_SIZE)
+        private var next = 0
+        private var size = 0
+
+        @Synchronized
+        fun add(millis: Long) {
+            samples[next] = millis
+            next = (next + 1) % WINDOW_SIZE
+            if (size < WINDOW_SIZE) size++
+        }
+
+        @Synchronized
+        fun percentile(p: Double): Long? {
+            if (size < MIN_SAMPLES) return null
+            val sorted = samples.copyOf(size).apply { sort() }
+            return sorted[((size - 1) * p).toInt()]
+        }
+    }
+
+    private val windows = ConcurrentHashMap<String, Window>()
+
+    /** Records the time from sending a request to receiving its response headers. */
+    val networkInterceptor = Interceptor { chain ->
+        val request = chain.request()
+        val start = System.nanoTime()
+        val response = chain.proceed(request)
+        record(request.url.host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+        response
+    }
+
+    fun record(host: String, millis: Long) {
+        windows.getOrPut(host) { Window() }.add(millis)
+    }
+
+    /** Returns null until enough calls to [host] have completed. */
+    fun percentile(host: String, p: Double): Long? = windows[host]?.percentile(p)
+
+    /** Delay after which a duplicate request is worth sending; null disables hedging. */
+    fun hedgeDelayMillis(host: String): Long? = percentile(host, 0.95)
+
+    /** Connect/read timeout derived from the host's p99 instead of one fixed value. */
+    fun timeoutMillis(host: String): Long {
+        val p99 = percentile(host, 0.99) ?: return DEFAULT_TIMEOUT_MILLIS
+        return (p99 * TIMEOUT_P99_MULTIPLIER).coerceIn(MIN_TIMEOUT_MILLIS, MAX_TIMEOUT_MILLIS)
+    }
+}
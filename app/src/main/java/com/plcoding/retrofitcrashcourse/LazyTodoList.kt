@@ -0,0 +1,131 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.google.gson.stream.JsonReader
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.io.InputStreamReader
+
+/**
+ * Read-only list over a raw JSON array of breeds that only keeps the response bytes and
+ * the start/end offset of each element. A [Todo] is decoded the first time its position
+ * is read; the most recently decoded rows are kept in a small cache.
+ */
+class LazyTodoList private constructor(
+    private val json: ByteArray,
+    private val starts: IntArray,
+    private val ends: IntArray
+) : AbstractList<Todo>(), RandomAccess {
+
+    private val materialized = object : LinkedHashMap<Int, Todo>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, Todo>?) =
+            size > MATERIALIZED_ROWS
+    }
+    private val adapter = TodoJson.gson.getAdapter(Todo::class.java)
+
+    override val size: Int get() = starts.size
+
+    override fun get(index: Int): Todo {
+        synchronized(materialized) { materialized[index] }?.let { return it }
+        val reader = JsonReader(
+            InputStreamReader(ByteArrayInputStream(json, starts[index], ends[index] - starts[index]), Charsets.UTF_8)
+        )
+        val todo = reader.use { adapter.read(it) }
+        synchronized(materialized) { materialized[index] = todo }
+        return todo
+    }
+
+    companion object {
+        private const val MATERIALIZED_ROWS = 64
+        private val NULL_LITERAL = "null".toByteArray(Charsets.US_ASCII)
+
+        /**
+         * Scans [json] once and records where each top-level array element starts and ends.
+         * Only structural bytes are inspected; nothing is decoded. `null` elements are
+         * skipped, as [TodoJson] does when decoding a whole list.
+         */
+        @Throws(IOException::class)
+        fun index(json: ByteArray): LazyTodoList {
+            var starts = IntArray(64)
+            var ends = IntArray(64)
+            var count = 0
+            var i = skipWhitespace(json, 0)
+            if (i >= json.size || json[i] != '['.code.toByte()) throw IOException("Expected a JSON array")
+            i = skipWhitespace(json, i + 1)
+            if (i < json.size && json[i] == ']'.code.toByte()) {
+                return LazyTodoList(json, IntArray(0), IntArray(0))
+            }
+            while (i < json.size) {
+                val end = skipValue(json, i)
+                if (end == i) throw IOException("Malformed JSON array at offset $i")
+                if (!isNull(json, i, end)) {
+                    if (count == starts.size) {
+                        starts = starts.copyOf(count * 2)
+                        ends = ends.copyOf(count * 2)
+                    }
+                    starts[count] = i
+                    ends[count] = end
+                    count++
+                }
+                i = skipWhitespace(json, end)
+                if (i >= json.size) throw IOException("Unterminated JSON array")
+                when (json[i]) {
+                    ','.code.toByte() -> i = skipWhitespace(json, i + 1)
+                    ']'.code.toByte() -> return LazyTodoList(json, starts.copyOf(count), ends.copyOf(count))
+                    else -> throw IOException("Malformed JSON array at offset $i")
+                }
+            }
+            throw IOException("Unterminated JSON array")
+        }
+
+        private fun isNull(json: ByteArray, start: Int, end: Int): Boolean {
+            var last = end
+            while (last > start && json[last - 1].toInt().toChar().isWhitespace()) last--
+            return last - start == NULL_LITERAL.size &&
+                    NULL_LITERAL.indices.all { json[start + it] == NULL_LITERAL[it] }
+        }
+
+        private fun skipWhitespace(json: ByteArray, from: Int): Int {
+            var i = from
+            while (i < json.size) {
+                when (json[i]) {
+                    ' '.code.toByte(), '\n'.code.toByte(), '\r'.code.toByte(), '\t'.code.toByte() -> i++
+                    else -> return i
+                }
+            }
+            return i
+        }
+
+        /** Returns the offset just past the JSON value starting at [from]. */
+        private fun skipValue(json: ByteArray, from: Int): Int {
+            var depth = 0
+            var inString = false
+            var i = from
+            while (i < json.size) {
+                val b = json[i]
+                if (inString) {
+                    when (b) {
+                        '\\'.code.toByte() -> i++
+                        '"'.code.toByte() -> {
+                            inString = false
+                            if (depth == 0) return i + 1
+                        }
+                    }
+                } else {
+                    when (b) {
+                        '"'.code.toByte() -> inString = true
+                        '{'.code.toByte(), '['.code.toByte() -> depth++
+                        '}'.code.toByte(), ']'.code.toByte() -> {
+                            if (depth == 0) return i
+                            depth--
+                            if (depth == 0) return i + 1
+                        }
+                        ','.code.toByte() -> if (depth == 0) return i
+                    }
+                }
+                i++
+            }
+            if (depth == 0 && !inString) return i
+            throw IOException("Unterminated JSON value")
+        }
+    }
+}
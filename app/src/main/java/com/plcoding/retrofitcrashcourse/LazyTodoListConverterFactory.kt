@@ -0,0 +1,29 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.ResponseBody
+import retrofit2.Converter
+import retrofit2.Retrofit
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.Type
+
+/** Marks a `List<Todo>` endpoint whose body is indexed by [LazyTodoList] instead of decoded. */
+@Target(AnnotationTarget.FUNCTION)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class LazyDecoding
+
+class LazyTodoListConverterFactory : Converter.Factory() {
+
+    override fun responseBodyConverter(
+        type: Type,
+        annotations: Array<out Annotation>,
+        retrofit: Retrofit
+    ): Converter<ResponseBody, *>? {
+        if (annotations.none { it is LazyDecoding }) return null
+        if (type !is ParameterizedType || getRawType(type) != List::class.java ||
+            getParameterUpperBound(0, type) != Todo::class.java
+        ) {
+            throw IllegalArgumentException("@LazyDecoding only supports List<Todo>, found $type")
+        }
+        return Converter<ResponseBody, List<Todo>> { body -> body.use { LazyTodoList.index(it.bytes()) } }
+    }
+}
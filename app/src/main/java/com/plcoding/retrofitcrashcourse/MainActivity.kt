@@ -17,6 +17,7 @@ import com.applovin.mediation.MaxError
 import com.applovin.mediation.ads.MaxAdView
 import com.applovin.sdk.AppLovinSdkConfiguration
 import com.plcoding.retrofitcrashcourse.databinding.ActivityMainBinding
+import kotlinx.coroutines.flow.collect
 import retrofit2.HttpException
 import java.io.IOException
 
@@ -43,42 +44,60 @@ class MainActivity : AppCompatActivity(), MaxAdViewAdListener {
         setContentView(binding.root)
         setupRecyclerView()
 
+        if (BuildConfig.PAGED_LOADING) {
+            startPagedLoading()
+            return
+        }
+
         lifecycleScope.launchWhenCreated {
             binding.progressBar.isVisible = true
-            val cacheInterceptor = CacheInterceptor(this@MainActivity)
-            val response = try {
-
-                if (!NetworkUtils.hasNetwork()) {
-                    Toast.makeText(applicationContext,"Internet Connection is not Available : Data fetched from cache", Toast.LENGTH_LONG).show()
-                    cacheInterceptor.apiCache.getTodos()
-                }
-                else {
-                    RetrofitInstance.api.getTodos()
+            val mode = if (!NetworkUtils.hasNetwork()) {
+                Toast.makeText(applicationContext,"Internet Connection is not Available : Data fetched from cache", Toast.LENGTH_LONG).show()
+                FetchMode.CACHE_ONLY
+            } else if (BuildConfig.LAZY_DECODING) {
+                FetchMode.LAZY
+            } else {
+                FetchMode.STALE_WHILE_REVALIDATE
+            }
+            try {
+                TodoRepository.todos(mode).collect { todos ->
+                    todoAdapter.todos = todos
+                    binding.progressBar.isVisible = false
                 }
-
             } catch(e: IOException) {
                 Log.e(TAG, "IOException, you might not have internet connection and no cache exist")
-                binding.progressBar.isVisible = false
-                return@launchWhenCreated
             } catch (e: HttpException) {
                 Log.e(TAG, "HttpException, unexpected response")
-                binding.progressBar.isVisible = false
-                return@launchWhenCreated
-            }
-            if(response.isSuccessful && response.body() != null ) {
-                todoAdapter.todos = response.body()!!
-            } else {
-                Log.e(TAG, "Response not successful")
             }
             binding.progressBar.isVisible = false
         }
     }
 
 
+    override fun onStop() {
+        super.onStop()
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Network metrics: ${NetworkMetrics.toJson()}")
+        }
+    }
+
     private fun setupRecyclerView() = binding.rvTodos.apply {
         todoAdapter = TodoAdapter()
         adapter = todoAdapter
         layoutManager = LinearLayoutManager(this@MainActivity)
+        val imagePrefetcher = ImagePrefetcher(todoAdapter)
+        todoAdapter.onImageBind = imagePrefetcher::recordBind
+        addOnScrollListener(imagePrefetcher)
+    }
+
+    private fun startPagedLoading() {
+        binding.progressBar.isVisible = true
+        val loader = PagedTodoLoader(lifecycleScope) { todos ->
+            todoAdapter.todos = todos
+            binding.progressBar.isVisible = false
+        }
+        binding.rvTodos.addOnScrollListener(loader)
+        loader.start()
     }
 
     private fun createBannerAd()
@@ -1,7 +1,6 @@
 package com.plcoding.retrofitcrashcourse
 
 import android.app.Application
-import android.net.ConnectivityManager
 import android.util.Log
 import okhttp3.CacheControl
 import okhttp3.Interceptor
@@ -17,18 +16,16 @@ class MyApplication : Application() {
         if (instance == null) {
             instance = this
         }
+        ConnectivityMonitor.register(this)
+        BreedSyncWorker.schedule(this)
+        if (BuildConfig.STARTUP_WARM_UP) {
+            StartupWarmUp.start()
+        }
 
     }
 
     fun hasNetwork(): Boolean {
-        return instance.isNetworkConnected()
-    }
-
-    private fun isNetworkConnected(): Boolean {
-        val cm = getSystemService(CONNECTIVITY_SERVICE) as ConnectivityManager
-        val activeNetwork = cm.activeNetworkInfo
-        return activeNetwork != null &&
-                activeNetwork.isConnectedOrConnecting
+        return ConnectivityMonitor.snapshot.isConnected
     }
 
     companion object {
@@ -0,0 +1,176 @@
+package com.plcoding.retrofitcrashcourse
+
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.EventListener
+import okhttp3.Handshake
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import org.json.JSONObject
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Per-phase timings of every call on the shared client, collected by an OkHttp
+ * [EventListener] into [LatencyHistogram]s. Dump with [toJson].
+ *
+ * Only calls that reach the HTTP cache are counted. That leaves out the outer call of a
+ * hedged request, which just waits on its attempts, so each attempt counts once and the
+ * request is not counted again on top. A call that consults the cache more than once,
+ * like the fresh-only probe of [ConditionalRequests], counts with its last outcome.
+ */
+object NetworkMetrics {
+
+    val dns = LatencyHistogram()
+    val connect = LatencyHistogram()
+    val tls = LatencyHistogram()
+    val request = LatencyHistogram()
+    val timeToFirstByte = LatencyHistogram()
+    val bodyRead = LatencyHistogram()
+    val call = LatencyHistogram()
+
+    private val cacheHits = AtomicLong()
+    private val cacheMisses = AtomicLong()
+    private val conditionalCacheHits = AtomicLong()
+    private val failedCalls = AtomicLong()
+
+    internal val connectionsOpened = AtomicLong()
+    internal val connectionsAcquired = AtomicLong()
+
+    val eventListenerFactory = object : EventListener.Factory {
+        override fun create(call: Call): EventListener = CallTimer()
+    }
+
+    fun toJson(): String = JSONObject()
+        .put("dns", dns.toJson())
+        .put("connect", connect.toJson())
+        .put("tls", tls.toJson())
+        .put("request", request.toJson())
+        .put("timeToFirstByte", timeToFirstByte.toJson())
+        .put("bodyRead", bodyRead.toJson())
+        .put("call", call.toJson())
+        .put("cacheHits", cacheHits.get())
+        .put("cacheMisses", cacheMisses.get())
+        .put("conditionalCacheHits", conditionalCacheHits.get())
+        .put("failedCalls", failedCalls.get())
+        .put("connectionsOpened", connectionsOpened.get())
+        .put("connectionsAcquired", connectionsAcquired.get())
+        .toString()
+
+    /** One instance per call; OkHttp delivers a call's events sequentially. */
+    private class CallTimer : EventListener() {
+        private var reachedCache = false
+        private var cacheOutcome: AtomicLong? = null
+        private var callStart = 0L
+        private var dnsStart = 0L
+        private var connectStart = 0L
+        private var tlsStart = 0L
+        private var requestStart = 0L
+        private var requestEnd = 0L
+        private var bodyStart = 0L
+
+        override fun callStart(call: Call) {
+            callStart = System.nanoTime()
+        }
+
+        override fun dnsStart(call: Call, domainName: String) {
+            dnsStart = System.nanoTime()
+        }
+
+        override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>) {
+            dns.record(since(dnsStart))
+        }
+
+        override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+            connectStart = System.nanoTime()
+        }
+
+        override fun secureConnectStart(call: Call) {
+            tlsStart = System.nanoTime()
+        }
+
+        override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+            tls.record(since(tlsStart))
+        }
+
+        override fun connectEnd(
+            call: Call,
+            inetSocketAddress: InetSocketAddress,
+            proxy: Proxy,
+            protocol: Protocol?
+        ) {
+            connect.record(since(connectStart))
+            connectionsOpened.incrementAndGet()
+        }
+
+        override fun connectionAcquired(call: Call, connection: Connection) {
+            connectionsAcquired.incrementAndGet()
+        }
+
+        override fun requestHeadersStart(call: Call) {
+            requestStart = System.nanoTime()
+        }
+
+        override fun requestHeadersEnd(call: Call, request: Request) {
+            requestEnd = System.nanoTime()
+        }
+
+        override fun requestBodyEnd(call: Call, byteCount: Long) {
+            requestEnd = System.nanoTime()
+        }
+
+        override fun responseHeadersStart(call: Call) {
+            if (requestStart != 0L) {
+                request.record(TimeUnit.NANOSECONDS.toMillis(requestEnd - requestStart))
+                timeToFirstByte.record(since(requestEnd))
+            }
+        }
+
+        override fun responseBodyStart(call: Call) {
+            bodyStart = System.nanoTime()
+        }
+
+        override fun responseBodyEnd(call: Call, byteCount: Long) {
+            if (bodyStart != 0L) bodyRead.record(since(bodyStart))
+        }
+
+        override fun satisfactionFailure(call: Call, response: Response) {
+            reachedCache = true
+            cacheOutcome = null
+        }
+
+        override fun cacheHit(call: Call, response: Response) {
+            reachedCache = true
+            cacheOutcome = cacheHits
+        }
+
+        override fun cacheMiss(call: Call) {
+            reachedCache = true
+            cacheOutcome = cacheMisses
+        }
+
+        override fun cacheConditionalHit(call: Call, cachedResponse: Response) {
+            reachedCache = true
+            cacheOutcome = conditionalCacheHits
+        }
+
+        override fun callEnd(call: Call) {
+            if (!reachedCache) return
+            cacheOutcome?.incrementAndGet()
+            NetworkMetrics.call.record(since(callStart))
+        }
+
+        override fun callFailed(call: Call, ioe: IOException) {
+            if (!reachedCache) return
+            cacheOutcome?.incrementAndGet()
+            failedCalls.incrementAndGet()
+        }
+
+        private fun since(start: Long) = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    }
+}
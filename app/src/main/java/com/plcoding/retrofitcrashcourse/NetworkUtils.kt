@@ -1,26 +1,13 @@
 package com.plcoding.retrofitcrashcourse
 
 import android.content.Context
-import android.net.ConnectivityManager
-import android.net.NetworkInfo
-import androidx.appcompat.app.AppCompatActivity
 
 object NetworkUtils {
-    fun hasNetwork(): Boolean {
-        var isConnected = false // Initial Value
-        val connectivityManager = MyApplication.getInstance().getSystemService(AppCompatActivity.CONNECTIVITY_SERVICE) as ConnectivityManager
-        val activeNetwork: NetworkInfo? = connectivityManager.activeNetworkInfo
-        if (activeNetwork != null && activeNetwork.isConnected)
-            isConnected = true
-        return isConnected
-    }
+    /** Reads [ConnectivityMonitor]'s cached snapshot; no ConnectivityManager call per invocation. */
+    fun hasNetwork(): Boolean = ConnectivityMonitor.snapshot.isConnected
 }
 
 fun Context.hasNetwork(): Boolean {
-    var isConnected = false // Initial Value
-    val connectivityManager = this.getSystemService(AppCompatActivity.CONNECTIVITY_SERVICE) as ConnectivityManager
-    val activeNetwork: NetworkInfo? = connectivityManager.activeNetworkInfo
-    if (activeNetwork != null && activeNetwork.isConnected)
-        isConnected = true
-    return isConnected
-}
\ No newline at end of file
+    ConnectivityMonitor.register(this)
+    return ConnectivityMonitor.snapshot.isConnected
+}
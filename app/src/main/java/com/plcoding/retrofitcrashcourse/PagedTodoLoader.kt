@@ -0,0 +1,91 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.util.Log
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.launch
+import retrofit2.HttpException
+import java.io.IOException
+import java.util.TreeMap
+
+/**
+ * Loads breeds page by page as the list is scrolled.
+ *
+ * The next (or previous) page is requested once the user is within [prefetchDistance]
+ * rows of the end (or start) of what is loaded. At most [maxPagesInMemory] contiguous
+ * pages stay in the adapter list; pages furthest from the one just loaded are dropped
+ * and reloaded from the cache if the user scrolls back to them. The cap covers only this
+ * list: recently decoded page bodies may still be held by [DecodedResponseCache] and
+ * [ConditionalRequests], which bound their own size.
+ *
+ * All state is confined to the main thread; [scope] must dispatch there.
+ */
+class PagedTodoLoader(
+    private val scope: CoroutineScope,
+    private val pageSize: Int = 20,
+    private val prefetchDistance: Int = 10,
+    private val maxPagesInMemory: Int = 5,
+    private val onPagesChanged: (List<Todo>) -> Unit
+) : RecyclerView.OnScrollListener() {
+
+    private val pages = TreeMap<Int, List<Todo>>()
+    private val loading = HashSet<Int>()
+    private var lastPage = Int.MAX_VALUE
+
+    init {
+        require(maxPagesInMemory >= 2) { "maxPagesInMemory must allow at least two pages" }
+    }
+
+    fun start() = load(0)
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        if (pages.isEmpty()) return
+        val first = layoutManager.findFirstVisibleItemPosition()
+        val last = layoutManager.findLastVisibleItemPosition()
+        if (first == RecyclerView.NO_POSITION) return
+
+        if (dy >= 0 && last >= layoutManager.itemCount - 1 - prefetchDistance) {
+            load(pages.lastKey() + 1)
+        }
+        if (dy <= 0 && first <= prefetchDistance) {
+            load(pages.firstKey() - 1)
+        }
+    }
+
+    private fun load(page: Int) {
+        if (page < 0 || page > lastPage || pages.containsKey(page) || !loading.add(page)) return
+        scope.launch {
+            try {
+                val todos = TodoRepository.page(page, pageSize)
+                if (todos.size < pageSize) {
+                    lastPage = page
+                }
+                pages[page] = todos
+                trim(anchor = page)
+                onPagesChanged(pages.values.flatten())
+            } catch (e: IOException) {
+                Log.e(TAG, "IOException while loading page $page")
+            } catch (e: HttpException) {
+                Log.e(TAG, "HttpException while loading page $page")
+            } finally {
+                loading.remove(page)
+            }
+        }
+    }
+
+    private fun trim(anchor: Int) {
+        while (pages.size > maxPagesInMemory) {
+            if (anchor - pages.firstKey() > pages.lastKey() - anchor) {
+                pages.remove(pages.firstKey())
+            } else {
+                pages.remove(pages.lastKey())
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "PagedTodoLoader"
+    }
+}
@@ -0,0 +1,121 @@
+package com.plcoding.retrofitcrashcourse
+
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import okhttp3.CacheControl
+import okhttp3.Interceptor
+import okhttp3.Request
+import okhttp3.Response
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Retries idempotent requests with jittered exponential backoff and guards every host
+ * with a [CircuitBreaker]. While a host's breaker is open, requests are answered from
+ * the HTTP cache only (a 504 if nothing is cached) instead of waiting on a dead host.
+ *
+ * Hedged calls are retried and counted once as a whole; the attempts a
+ * [HedgingInterceptor] splits them into pass through untouched.
+ */
+object Resilience {
+
+    data class Stats(val retries: Long, val fastFails: Long)
+
+    private const val MAX_RETRIES = 3
+    private const val BASE_BACKOFF_MILLIS = 250L
+    private const val MAX_BACKOFF_MILLIS = 4_000L
+    private const val FAILURE_THRESHOLD = 5
+    private const val OPEN_MILLIS = 30_000L
+
+    private val IDEMPOTENT_METHODS = setOf("GET", "HEAD", "PUT", "DELETE", "OPTIONS")
+
+    private val breakers = ConcurrentHashMap<String, CircuitBreaker>()
+    private val retries = AtomicLong()
+    private val fastFails = AtomicLong()
+    private val states = MutableStateFlow<Map<String, CircuitBreaker.State>>(emptyMap())
+
+    /** Current breaker state per host, updated on every transition. */
+    val breakerStates: StateFlow<Map<String, CircuitBreaker.State>> get() = states
+
+    fun stats() = Stats(retries.get(), fastFails.get())
+
+    val interceptor = Interceptor { chain ->
+        val request = chain.request()
+        if (HedgingInterceptor.isAttempt(request)) {
+            return@Interceptor chain.proceed(request)
+        }
+        val breaker = breakerFor(request.url.host)
+        val permit = breaker.tryAcquire()
+        if (permit == null) {
+            fastFails.incrementAndGet()
+            return@Interceptor chain.proceed(
+                request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build()
+            )
+        }
+
+        try {
+            proceedWithRetries(chain, request, breaker)
+        } catch (e: Throwable) {
+            // A cancelled or crashed trial reported no outcome; hand it back so the
+            // breaker does not stay half-open. No-op if onFailure already reopened it.
+            if (permit == CircuitBreaker.Permit.TRIAL) breaker.releaseTrial()
+            throw e
+        }
+    }
+
+    private fun proceedWithRetries(
+        chain: Interceptor.Chain,
+        request: Request,
+        breaker: CircuitBreaker
+    ): Response {
+        val retryable = request.method in IDEMPOTENT_METHODS
+        var attempt = 0
+        while (true) {
+            val response = try {
+                chain.proceed(request)
+            } catch (e: IOException) {
+                if (chain.call().isCanceled()) throw e
+                breaker.onFailure()
+                if (!shouldRetry(retryable, attempt, chain)) throw e
+                null
+            }
+            if (response != null) {
+                if (!isServerFailure(response)) {
+                    breaker.onSuccess()
+                    return response
+                }
+                breaker.onFailure()
+                if (!shouldRetry(retryable, attempt, chain)) return response
+                response.close()
+            }
+            backoff(attempt++)
+            retries.incrementAndGet()
+        }
+    }
+
+    private fun breakerFor(host: String): CircuitBreaker = breakers.getOrPut(host) {
+        CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS) { state ->
+            states.value = states.value + (host to state)
+        }
+    }
+
+    private fun shouldRetry(retryable: Boolean, attempt: Int, chain: Interceptor.Chain): Boolean =
+        retryable && attempt < MAX_RETRIES && !chain.call().isCanceled() &&
+                breakers[chain.request().url.host]?.state != CircuitBreaker.State.OPEN
+
+    private fun isServerFailure(response: Response): Boolean =
+        response.code == 429 || (response.code >= 500 && response.code != 501 && response.networkResponse != null)
+
+    /** Full jitter: a random delay up to the exponential bound for this attempt. */
+    private fun backoff(attempt: Int) {
+        val bound = (BASE_BACKOFF_MILLIS shl attempt).coerceAtMost(MAX_BACKOFF_MILLIS)
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1))
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            throw IOException("Interrupted during retry backoff", e)
+        }
+    }
+}
@@ -1,22 +1,18 @@
 package com.plcoding.retrofitcrashcourse
 
-import android.app.Application
-import android.content.Context
-import android.net.ConnectivityManager
-import android.net.NetworkInfo
-import okhttp3.Cache
-import okhttp3.OkHttpClient
-import retrofit2.Retrofit
-import retrofit2.converter.gson.GsonConverterFactory
-
 object RetrofitInstance {
 
+    val singleFlight = SingleFlight()
+
     val api: TodoApi by lazy {
-        Retrofit.Builder()
-            .baseUrl("https://api.thedogapi.com/")
-            .addConverterFactory(GsonConverterFactory.create())
-            .build()
-            .create(TodoApi::class.java)
+        DecodedCacheTodoApi(
+            CoalescingTodoApi(
+                RevalidatingTodoApi(
+                    ColumnarTodoApi(HttpClientFactory.retrofit().create(TodoApi::class.java))
+                ),
+                singleFlight
+            )
+        )
     }
 
 }
\ No newline at end of file
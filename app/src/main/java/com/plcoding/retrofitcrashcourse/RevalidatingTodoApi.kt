@@ -0,0 +1,16 @@
+package com.plcoding.retrofitcrashcourse
+
+import retrofit2.Response
+
+/**
+ * [TodoApi] decorator that answers `304 Not Modified` with the list decoded last time,
+ * see [ConditionalRequests]. Every method marked [Revalidate] must be overridden here.
+ */
+class RevalidatingTodoApi(private val delegate: TodoApi) : TodoApi by delegate {
+
+    override suspend fun getTodos(): Response<List<Todo>> =
+        ConditionalRequests.resolve(delegate.getTodos())
+
+    override suspend fun getTodosPage(limit: Int, page: Int): Response<List<Todo>> =
+        ConditionalRequests.resolve(delegate.getTodosPage(limit, page))
+}
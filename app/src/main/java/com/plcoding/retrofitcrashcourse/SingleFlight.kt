@@ -0,0 +1,56 @@
+package com.plcoding.retrofitcrashcourse
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs at most one call per key at a time; concurrent callers with the same key
+ * await the call already in flight and get the same result.
+ *
+ * The shared call runs in its own scope, so a caller being cancelled (e.g. an
+ * activity recreated on rotation) does not cancel it for the others.
+ */
+class SingleFlight {
+
+    data class Stats(val executed: Long, val coalesced: Long)
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val inFlight = ConcurrentHashMap<String, Deferred<Any?>>()
+    private val executed = AtomicLong()
+    private val coalesced = AtomicLong()
+
+    @Suppress("UNCHECKED_CAST")
+    suspend fun <T> run(key: String, block: suspend () -> T): T {
+        inFlight[key]?.let {
+            coalesced.incrementAndGet()
+            return it.await() as T
+        }
+        val call = scope.async(start = CoroutineStart.LAZY) { block() as Any? }
+        val existing = inFlight.putIfAbsent(key, call)
+        if (existing != null) {
+            call.cancel()
+            coalesced.incrementAndGet()
+            return existing.await() as T
+        }
+        call.invokeOnCompletion { inFlight.remove(key, call) }
+        executed.incrementAndGet()
+        call.start()
+        return call.await() as T
+    }
+
+    /** True while a call for [key] is running; joining it is then cheaper than a new request. */
+    fun isInFlight(key: String): Boolean = inFlight.containsKey(key)
+
+    fun stats() = Stats(executed.get(), coalesced.get())
+
+    companion object {
+        fun requestKey(method: String, path: String, vararg params: Pair<String, Any?>): String =
+            params.joinToString(separator = "&", prefix = "$method $path?") { (name, value) -> "$name=$value" }
+    }
+}
@@ -0,0 +1,41 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import okhttp3.HttpUrl.Companion.toHttpUrl
+import java.io.IOException
+
+/**
+ * Moves first-request costs out of the user-visible path: builds the shared OkHttp and
+ * Retrofit stack, resolves the API host and starts the breeds fetch in the background.
+ * The fetch goes through [RetrofitInstance.singleFlight], so `MainActivity` joins it
+ * instead of starting a second one.
+ *
+ * Enabled with the `STARTUP_WARM_UP` BuildConfig flag.
+ */
+object StartupWarmUp {
+
+    private const val TAG = "StartupWarmUp"
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    fun start() {
+        scope.launch {
+            val client = HttpClientFactory.client
+            RetrofitInstance.api
+            try {
+                client.dns.lookup(HttpClientFactory.BASE_URL.toHttpUrl().host)
+            } catch (e: IOException) {
+                Log.w(TAG, "Could not pre-resolve API host", e)
+                return@launch
+            }
+            if (NetworkUtils.hasNetwork()) {
+                // Opens the pooled connection (DNS, TCP, TLS) and decodes the breeds.
+                TodoRepository.prefetch()
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.google.gson.stream.JsonReader
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import okhttp3.ResponseBody
+
+/**
+ * Decodes a JSON array of breeds straight from the response source, one element at a
+ * time, and emits them in batches of [batchSize] while the rest is still downloading.
+ * Only the current batch is held by the decoder. `null` elements are skipped.
+ */
+object StreamingTodoDecoder {
+
+    fun decode(body: ResponseBody, batchSize: Int): Flow<List<Todo>> = flow {
+        require(batchSize > 0) { "batchSize must be positive" }
+        body.use {
+            JsonReader(body.charStream()).use { reader ->
+                val adapter = TodoJson.gson.getAdapter(Todo::class.java)
+                var batch = ArrayList<Todo>(batchSize)
+                reader.beginArray()
+                while (reader.hasNext()) {
+                    val todo: Todo? = adapter.read(reader)
+                    if (todo == null) continue
+                    batch.add(todo)
+                    if (batch.size == batchSize) {
+                        emit(batch)
+                        batch = ArrayList(batchSize)
+                    }
+                }
+                reader.endArray()
+                if (batch.isNotEmpty()) {
+                    emit(batch)
+                }
+            }
+        }
+    }.flowOn(Dispatchers.IO)
+}
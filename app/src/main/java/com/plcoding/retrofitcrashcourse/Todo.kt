@@ -9,7 +9,7 @@ data class Todo(
     val title: String,
     val userId: Int,
     val name : String,
-    val image: Image,
+    val image: Image?,
 
 )
 data class Image(
@@ -2,17 +2,23 @@ package com.plcoding.retrofitcrashcourse
 
 import android.view.LayoutInflater
 import android.view.ViewGroup
-import android.widget.ImageView
+import androidx.recyclerview.widget.AdapterListUpdateCallback
+import androidx.recyclerview.widget.AsyncDifferConfig
 import androidx.recyclerview.widget.AsyncListDiffer
 import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.plcoding.retrofitcrashcourse.databinding.ItemTodoBinding
-import com.squareup.picasso.Picasso
 
-class TodoAdapter : RecyclerView.Adapter<TodoAdapter.TodoViewHolder>() {
+class TodoAdapter(
+    private val diffExecutor: DiffExecutor = DiffExecutor.shared
+) : RecyclerView.Adapter<TodoAdapter.TodoViewHolder>() {
 
     inner class TodoViewHolder(val binding: ItemTodoBinding) : RecyclerView.ViewHolder(binding.root)
 
+    init {
+        setHasStableIds(true)
+    }
+
     private val diffCallback = object : DiffUtil.ItemCallback<Todo>() {
         override fun areItemsTheSame(oldItem: Todo, newItem: Todo): Boolean {
             return oldItem.id == newItem.id
@@ -21,17 +27,51 @@ class TodoAdapter : RecyclerView.Adapter<TodoAdapter.TodoViewHolder>() {
         override fun areContentsTheSame(oldItem: Todo, newItem: Todo): Boolean {
             return oldItem == newItem
         }
+
+        /** Bit set of the displayed fields that changed, see the `PAYLOAD_` constants. */
+        override fun getChangePayload(oldItem: Todo, newItem: Todo): Any {
+            var changes = 0
+            if (oldItem.name != newItem.name) changes = changes or PAYLOAD_NAME
+            if (oldItem.completed != newItem.completed) changes = changes or PAYLOAD_COMPLETED
+            if (oldItem.image?.url != newItem.image?.url) changes = changes or PAYLOAD_IMAGE
+            if (oldItem.image?.width != newItem.image?.width || oldItem.image?.height != newItem.image?.height) {
+                changes = changes or PAYLOAD_IMAGE_SIZE
+            }
+            return changes
+        }
     }
 
 
-    private val differ = AsyncListDiffer(this, diffCallback)
+    private val diffChannel = diffExecutor.newChannel()
+
+    private val differ = AsyncListDiffer(
+        AdapterListUpdateCallback(this),
+        AsyncDifferConfig.Builder(diffCallback)
+            .setBackgroundThreadExecutor(diffChannel)
+            .build()
+    )
     var todos: List<Todo>
         get() = differ.currentList
-        set(value) { differ.submitList(value) }
+        set(value) {
+            diffChannel.onSubmit(differ.currentList.size, value.size)
+            differ.submitList(value)
+        }
+
+    /** Width images are decoded at; taken from the RecyclerView when rows are created. */
+    var imageTargetWidth = 0
+        private set
+
+    /** Notified with the image URL of every row that starts an image load. */
+    var onImageBind: ((String) -> Unit)? = null
 
     override fun getItemCount() = todos.size
 
+    override fun getItemId(position: Int): Long = todos[position].id.toLong()
+
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): TodoViewHolder {
+        if (imageTargetWidth == 0) {
+            imageTargetWidth = parent.width.takeIf { it > 0 } ?: parent.resources.displayMetrics.widthPixels
+        }
         return TodoViewHolder(ItemTodoBinding.inflate(
             LayoutInflater.from(parent.context),
             parent,
@@ -43,11 +83,51 @@ class TodoAdapter : RecyclerView.Adapter<TodoAdapter.TodoViewHolder>() {
             val todo = todos[position]
             tvTitle.text = todo.name
 
-            val imageView: ImageView =image
-            val imageFromApi = todo.image.url
-            Picasso.get().load(imageFromApi).into(imageView)
+            bindImage(image, todo.image)
 
             cbDone.isChecked = todo.completed
         }
     }
+
+    /** Rebinds only the views named in the diff payloads; falls back to a full bind without them. */
+    override fun onBindViewHolder(holder: TodoViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position)
+            return
+        }
+        val changes = payloads.fold(0) { acc, payload -> acc or (payload as? Int ?: PAYLOAD_ALL) }
+        holder.binding.apply {
+            val todo = todos[position]
+            if (changes and PAYLOAD_NAME != 0) {
+                tvTitle.text = todo.name
+            }
+            if (changes and PAYLOAD_COMPLETED != 0) {
+                cbDone.isChecked = todo.completed
+            }
+            // A new size changes both the reserved box and the decode size of the request.
+            if (changes and (PAYLOAD_IMAGE or PAYLOAD_IMAGE_SIZE) != 0) {
+                bindImage(image, todo.image)
+            }
+        }
+    }
+
+    /**
+     * Sizes the view from the image metadata before loading, so neither the placeholder
+     * nor the arriving bitmap changes the row height.
+     */
+    private fun bindImage(imageView: AspectRatioImageView, image: Image?) {
+        imageView.aspectRatio = ImageRequests.aspectRatio(image)
+        ImageRequests.urlOf(image)?.let { onImageBind?.invoke(it) }
+        ImageRequests.load(image, imageTargetWidth)
+            .placeholder(ImageRequests.placeholder(image))
+            .into(imageView)
+    }
+
+    companion object {
+        private const val PAYLOAD_NAME = 1
+        private const val PAYLOAD_COMPLETED = 1 shl 1
+        private const val PAYLOAD_IMAGE = 1 shl 2
+        private const val PAYLOAD_IMAGE_SIZE = 1 shl 3
+        private const val PAYLOAD_ALL = PAYLOAD_NAME or PAYLOAD_COMPLETED or PAYLOAD_IMAGE or PAYLOAD_IMAGE_SIZE
+    }
 }
\ No newline at end of file
@@ -1,14 +1,45 @@
 package com.plcoding.retrofitcrashcourse
 
+import okhttp3.ResponseBody
 import retrofit2.Response
 import retrofit2.http.Body
 import retrofit2.http.GET
+import retrofit2.http.Header
 import retrofit2.http.POST
 import retrofit2.http.Query
+import retrofit2.http.Streaming
 
 interface TodoApi {
 
+    @CachePolicy(name = "breeds", maxAgeSeconds = 5000, maxStaleSeconds = 7 * 24 * 60 * 60)
+    @Revalidate
     @GET("v1/breeds")
     suspend fun getTodos(): Response<List<Todo>>
 
+    /**
+     * Same endpoint as [getTodos] with an explicit Cache-Control request header,
+     * e.g. `CacheControl.FORCE_CACHE` to read whatever is on disk without touching the network.
+     */
+    @CachePolicy(name = "breeds", maxAgeSeconds = 5000, maxStaleSeconds = 7 * 24 * 60 * 60)
+    @GET("v1/breeds")
+    suspend fun getTodos(@Header("Cache-Control") cacheControl: String): Response<List<Todo>>
+
+    /** Breeds list indexed but not decoded; rows materialize as they are read, see [LazyTodoList]. */
+    @CachePolicy(name = "breeds", maxAgeSeconds = 5000, maxStaleSeconds = 7 * 24 * 60 * 60)
+    @LazyDecoding
+    @GET("v1/breeds")
+    suspend fun getTodosLazy(): Response<List<Todo>>
+
+    /** One page of the breeds list; pages are cached under their own URLs. */
+    @CachePolicy(name = "breeds-page", maxAgeSeconds = 5000, maxStaleSeconds = 7 * 24 * 60 * 60)
+    @Revalidate
+    @GET("v1/breeds")
+    suspend fun getTodosPage(@Query("limit") limit: Int, @Query("page") page: Int): Response<List<Todo>>
+
+    /** Unbuffered body of the breeds list for [StreamingTodoDecoder]; the caller must close it. */
+    @CachePolicy(name = "breeds", maxAgeSeconds = 5000, maxStaleSeconds = 7 * 24 * 60 * 60)
+    @Streaming
+    @GET("v1/breeds")
+    suspend fun getTodosStream(): ResponseBody
+
 }
\ No newline at end of file
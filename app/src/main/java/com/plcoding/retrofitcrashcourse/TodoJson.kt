@@ -0,0 +1,188 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.WildcardType
+
+/**
+ * Gson instance with explicit, reflection-free adapters for [Todo] and [Image].
+ *
+ * Fields absent from the payload (the breeds feed has no `completed`, `title` or
+ * `userId`) get Kotlin-safe defaults instead of the nulls reflective decoding leaves
+ * in non-null properties. A `null` element of a breeds array is dropped rather than
+ * decoded into a `List<Todo>` that claims not to hold nulls.
+ */
+object TodoJson {
+
+    val gson: Gson by lazy {
+        val imageAdapter = ImageTypeAdapter()
+        GsonBuilder()
+            .registerTypeAdapter(Image::class.java, imageAdapter)
+            .registerTypeAdapter(Todo::class.java, TodoTypeAdapter(imageAdapter))
+            .registerTypeAdapterFactory(TodoListAdapterFactory)
+            .create()
+    }
+}
+
+/** Supplies the adapter for `List<Todo>`, which skips `null` elements while reading. */
+private object TodoListAdapterFactory : TypeAdapterFactory {
+
+    override fun <T> create(gson: Gson, type: TypeToken<T>): TypeAdapter<T>? {
+        if (type.rawType != List::class.java) return null
+        val elementType = (type.type as? ParameterizedType)?.actualTypeArguments?.single()
+            .let { if (it is WildcardType) it.upperBounds.single() else it }
+        if (elementType != Todo::class.java) return null
+        @Suppress("UNCHECKED_CAST")
+        return TodoListTypeAdapter(gson.getAdapter(Todo::class.java)) as TypeAdapter<T>
+    }
+}
+
+private class TodoListTypeAdapter(private val todoAdapter: TypeAdapter<Todo>) : TypeAdapter<List<Todo>>() {
+
+    override fun read(reader: JsonReader): List<Todo>? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        val todos = ArrayList<Todo>()
+        reader.beginArray()
+        while (reader.hasNext()) {
+            todoAdapter.read(reader)?.let { todos.add(it) }
+        }
+        reader.endArray()
+        return todos
+    }
+
+    override fun write(writer: JsonWriter, value: List<Todo>?) {
+        if (value == null) {
+            writer.nullValue()
+            return
+        }
+        writer.beginArray()
+        value.forEach { todoAdapter.write(writer, it) }
+        writer.endArray()
+    }
+}
+
+class TodoTypeAdapter(private val imageAdapter: TypeAdapter<Image>) : TypeAdapter<Todo>() {
+
+    override fun read(reader: JsonReader): Todo? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        var completed = false
+        var id = 0
+        var title = ""
+        var userId = 0
+        var name = ""
+        var image: Image? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "completed" -> completed = reader.nextBooleanOrNull() ?: false
+                "id" -> id = reader.nextIntOrNull() ?: 0
+                "title" -> title = reader.nextStringOrNull() ?: ""
+                "userId" -> userId = reader.nextIntOrNull() ?: 0
+                "name" -> name = reader.nextStringOrNull() ?: ""
+                "image" -> image = imageAdapter.read(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Todo(
+            completed = completed,
+            id = id,
+            title = title,
+            userId = userId,
+            name = name,
+            image = image
+        )
+    }
+
+    override fun write(writer: JsonWriter, value: Todo?) {
+        if (value == null) {
+            writer.nullValue()
+            return
+        }
+        writer.beginObject()
+        writer.name("completed").value(value.completed)
+        writer.name("id").value(value.id.toLong())
+        writer.name("title").value(value.title)
+        writer.name("userId").value(value.userId.toLong())
+        writer.name("name").value(value.name)
+        writer.name("image")
+        imageAdapter.write(writer, value.image)
+        writer.endObject()
+    }
+}
+
+class ImageTypeAdapter : TypeAdapter<Image>() {
+
+    override fun read(reader: JsonReader): Image? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        var height = 0
+        var id = ""
+        var url = ""
+        var width = 0
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "height" -> height = reader.nextIntOrNull() ?: 0
+                "id" -> id = reader.nextStringOrNull() ?: ""
+                "url" -> url = reader.nextStringOrNull() ?: ""
+                "width" -> width = reader.nextIntOrNull() ?: 0
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Image(height = height, id = id, url = url, width = width)
+    }
+
+    override fun write(writer: JsonWriter, value: Image?) {
+        if (value == null) {
+            writer.nullValue()
+            return
+        }
+        writer.beginObject()
+        writer.name("height").value(value.height.toLong())
+        writer.name("id").value(value.id)
+        writer.name("url").value(value.url)
+        writer.name("width").value(value.width.toLong())
+        writer.endObject()
+    }
+}
+
+private fun JsonReader.nextStringOrNull(): String? =
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        null
+    } else {
+        nextString()
+    }
+
+private fun JsonReader.nextIntOrNull(): Int? =
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        null
+    } else {
+        nextInt()
+    }
+
+private fun JsonReader.nextBooleanOrNull(): Boolean? =
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        null
+    } else {
+        nextBoolean()
+    }
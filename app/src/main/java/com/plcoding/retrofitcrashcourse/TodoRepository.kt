@@ -0,0 +1,247 @@
+package com.plcoding.retrofitcrashcourse
+
+import android.database.sqlite.SQLiteException
+import android.util.Log
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import okhttp3.CacheControl
+import retrofit2.HttpException
+import retrofit2.Response
+import java.io.IOException
+
+object TodoRepository {
+
+    private const val TAG = "TodoRepository"
+    private const val STREAM_BATCH_SIZE = 20
+
+    fun todos(mode: FetchMode): Flow<List<Todo>> = flow {
+        when (mode) {
+            FetchMode.NETWORK -> emit(fetchNetwork())
+            FetchMode.CACHE_ONLY -> emit(readSnapshot() ?: readStore() ?: readOfflineCache())
+            FetchMode.STREAMING -> emitAll(sharedStream())
+            FetchMode.LAZY -> emit(RetrofitInstance.api.getTodosLazy().bodyOrThrow())
+            FetchMode.STALE_WHILE_REVALIDATE -> {
+                val stale = latest ?: readSnapshot() ?: readStore() ?: readCached()
+                if (stale == null) {
+                    // First launch: stream the list, or join the fetch already running
+                    // (e.g. StartupWarmUp's) instead of downloading it a second time.
+                    emitAll(sharedStream())
+                    return@flow
+                }
+                emit(stale)
+                val fresh = try {
+                    fetchNetwork()
+                } catch (e: IOException) {
+                    Log.w(TAG, "Revalidation failed, keeping cached breeds", e)
+                    return@flow
+                } catch (e: HttpException) {
+                    // Includes the 504 served while the host's circuit breaker is open.
+                    Log.w(TAG, "Revalidation failed with HTTP ${e.code()}, keeping cached breeds")
+                    return@flow
+                }
+                if (fresh !== stale && fresh != stale) {
+                    emit(fresh)
+                }
+            }
+        }
+    }.flowOn(Dispatchers.IO)
+
+    private val store: BreedStore
+        get() = BreedStore.getInstance(MyApplication.getInstance())
+
+    /** Last list returned by [fetchNetwork] or [streamNetwork]. */
+    @Volatile
+    private var latest: List<Todo>? = null
+
+    /** Rows decoded so far by the stream running under [CoalescingTodoApi.TODOS_KEY], if any. */
+    private val streamProgress = MutableStateFlow<List<Todo>?>(null)
+
+    /**
+     * Fetches from the network and writes the result through to [BreedStore].
+     * A body that is the very instance seen last time (a 304 answered by
+     * [ConditionalRequests] or a [DecodedResponseCache] hit) is not written again.
+     */
+    private suspend fun fetchNetwork(): List<Todo> {
+        val todos = RetrofitInstance.api.getTodos().bodyOrThrow()
+        if (todos === latest) {
+            return todos
+        }
+        latest = todos
+        persist(todos)
+        return todos
+    }
+
+    /** Writes a full list to [BreedStore] and the [BreedSnapshot] used for the next cold start. */
+    private fun persist(todos: List<Todo>) {
+        try {
+            store.replaceAll(todos)
+        } catch (e: SQLiteException) {
+            Log.w(TAG, "Could not persist breeds", e)
+        }
+        try {
+            BreedSnapshot.write(MyApplication.getInstance(), todos)
+        } catch (e: IOException) {
+            Log.w(TAG, "Could not write breeds snapshot", e)
+        }
+    }
+
+    /** Fetches and stores the breeds list, sharing any fetch already in flight. */
+    suspend fun refresh(): List<Todo> = withContext(Dispatchers.IO) { fetchNetwork() }
+
+    /** Fetches and stores the breeds list ahead of time; failures are only logged. */
+    suspend fun prefetch() {
+        try {
+            fetchNetwork()
+        } catch (e: IOException) {
+            Log.w(TAG, "Prefetch failed", e)
+        } catch (e: HttpException) {
+            Log.w(TAG, "Prefetch failed with HTTP ${e.code()}")
+        }
+    }
+
+    /**
+     * Loads one page, writing it to [BreedStore]; falls back to the stored rows for that
+     * page when the network call fails or is answered with an error, including the 504
+     * served while the host's circuit breaker is open.
+     */
+    suspend fun page(page: Int, pageSize: Int): List<Todo> = withContext(Dispatchers.IO) {
+        try {
+            val todos = RetrofitInstance.api.getTodosPage(pageSize, page).bodyOrThrow()
+            try {
+                store.upsert(todos, page * pageSize)
+            } catch (e: SQLiteException) {
+                Log.w(TAG, "Could not persist page $page", e)
+            }
+            todos
+        } catch (e: IOException) {
+            storedPage(page, pageSize) ?: throw e
+        } catch (e: HttpException) {
+            storedPage(page, pageSize) ?: throw e
+        }
+    }
+
+    private fun storedPage(page: Int, pageSize: Int): List<Todo>? = try {
+        store.page(page * pageSize, pageSize).takeIf { it.isNotEmpty() }
+    } catch (e: SQLiteException) {
+        null
+    }
+
+    /**
+     * Streams the breeds list under [CoalescingTodoApi.TODOS_KEY], emitting a read-only
+     * view of the rows decoded so far after every batch and the complete list at the end.
+     *
+     * The download itself runs in [RetrofitInstance.singleFlight]'s scope, so a collector
+     * cancelled by rotation does not restart it: the next collector joins the same stream
+     * and picks up its progress, and [refresh] joins it too. If a plain [fetchNetwork] is
+     * already in flight, this joins that instead and emits only its result.
+     */
+    private fun sharedStream(): Flow<List<Todo>> = channelFlow {
+        val full = async {
+            RetrofitInstance.singleFlight.run(CoalescingTodoApi.TODOS_KEY) { streamNetwork() }
+        }
+        val progress = launch {
+            streamProgress.filterNotNull().collect { send(it) }
+        }
+        val todos = full.await().bodyOrThrow()
+        progress.cancelAndJoin()
+        send(todos)
+    }
+
+    /**
+     * Decodes the streamed list batch by batch into [streamProgress], then writes the
+     * complete list through to [BreedStore]. Returns a [Response] because that is what
+     * callers of [TodoApi.getTodos] joining the same key expect.
+     */
+    private suspend fun streamNetwork(): Response<List<Todo>> {
+        val todos = AppendOnlyList<Todo>()
+        try {
+            StreamingTodoDecoder.decode(RetrofitInstance.api.getTodosStream(), STREAM_BATCH_SIZE)
+                .collect { batch ->
+                    todos.addAll(batch)
+                    streamProgress.value = todos.snapshot()
+                }
+        } finally {
+            streamProgress.value = null
+        }
+        val all = todos.snapshot()
+        latest = all
+        persist(all)
+        return Response.success(all)
+    }
+
+    /** Memory-mapped snapshot from the last refresh; rows decode on first access. */
+    private fun readSnapshot(): List<Todo>? =
+        BreedSnapshot.read(MyApplication.getInstance())?.takeIf { it.isNotEmpty() }
+
+    private fun readStore(): List<Todo>? = try {
+        store.all().takeIf { it.isNotEmpty() }
+    } catch (e: SQLiteException) {
+        Log.w(TAG, "Could not read stored breeds", e)
+        null
+    }
+
+    /** Fallback for installs whose store has not been populated yet. */
+    private suspend fun readOfflineCache(): List<Todo> =
+        CacheInterceptor.getInstance(MyApplication.getInstance()).apiCache.getTodos()
+            .bodyOrThrow()
+
+    /** Reads the disk cache only; a miss comes back as 504 and is treated as "nothing cached". */
+    private suspend fun readCached(): List<Todo>? = try {
+        val response = RetrofitInstance.api.getTodos(CacheControl.FORCE_CACHE.toString())
+        if (response.isSuccessful) response.body() else null
+    } catch (e: IOException) {
+        Log.w(TAG, "Could not read cached breeds", e)
+        null
+    }
+
+    private fun <T> Response<T>.bodyOrThrow(): T {
+        val body = body()
+        if (!isSuccessful || body == null) throw HttpException(this)
+        return body
+    }
+}
+
+/**
+ * Growing list whose snapshots share one backing array. Elements are only appended, so a
+ * snapshot never changes while later batches are added, and publishing one copies
+ * nothing; the array is only copied when it has to grow.
+ */
+private class AppendOnlyList<T> {
+
+    private var elements = arrayOfNulls<Any>(16)
+    private var size = 0
+
+    fun addAll(batch: List<T>) {
+        if (size + batch.size > elements.size) {
+            elements = elements.copyOf(maxOf(elements.size * 2, size + batch.size))
+        }
+        for (element in batch) {
+            elements[size++] = element
+        }
+    }
+
+    fun snapshot(): List<T> = Snapshot(elements, size)
+
+    private class Snapshot<T>(
+        private val elements: Array<Any?>,
+        override val size: Int
+    ) : AbstractList<T>(), RandomAccess {
+
+        @Suppress("UNCHECKED_CAST")
+        override fun get(index: Int): T {
+            if (index < 0 || index >= size) throw IndexOutOfBoundsException("Index $index, size $size")
+            return elements[index] as T
+        }
+    }
+}
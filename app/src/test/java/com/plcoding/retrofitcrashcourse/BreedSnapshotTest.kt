@@ -0,0 +1,77 @@
+package com.plcoding.retrofitcrashcourse
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+
+class BreedSnapshotTest {
+
+    private val todos = listOf(
+        Todo(
+            completed = true,
+            id = 1,
+            title = "",
+            userId = 7,
+            name = "Affenpinscher",
+            image = Image(height = 1199, id = "BJa4kxc4X", url = "https://cdn.example/BJa4kxc4X.jpg", width = 1600)
+        ),
+        Todo(completed = false, id = 2, title = "Hound", userId = 0, name = "Afghan éè 🐕", image = null)
+    )
+
+    private fun encode(todos: List<Todo>): ByteArray =
+        ByteArrayOutputStream().also { BreedSnapshot.encode(todos, it) }.toByteArray()
+
+    @Test
+    fun roundTripsRows() {
+        val decoded = BreedSnapshot.decode(ByteBuffer.wrap(encode(todos)))
+        assertEquals(todos, decoded)
+    }
+
+    @Test
+    fun roundTripsEmptyList() {
+        assertEquals(emptyList<Todo>(), BreedSnapshot.decode(ByteBuffer.wrap(encode(emptyList()))))
+    }
+
+    @Test
+    fun rejectsOtherVersion() {
+        val bytes = encode(todos)
+        bytes[7] = (bytes[7] + 1).toByte()
+        assertNull(BreedSnapshot.decode(ByteBuffer.wrap(bytes)))
+    }
+
+    @Test
+    fun rejectsShortHeader() {
+        assertNull(BreedSnapshot.decode(ByteBuffer.wrap(encode(todos).copyOf(11))))
+    }
+
+    @Test
+    fun truncatedSnapshotThrowsIOException() {
+        val bytes = encode(todos)
+        for (length in 12 until bytes.size) {
+            try {
+                BreedSnapshot.decode(ByteBuffer.wrap(bytes.copyOf(length)))
+                fail("Expected IOException for length $length")
+            } catch (expected: IOException) {
+            }
+        }
+    }
+
+    @Test(expected = IOException::class)
+    fun corruptStringLengthThrowsIOException() {
+        val bytes = encode(todos)
+        // First row's name length follows the 12-byte header and 9 bytes of fixed fields.
+        ByteBuffer.wrap(bytes).putInt(21, Int.MAX_VALUE)
+        BreedSnapshot.decode(ByteBuffer.wrap(bytes))
+    }
+
+    @Test(expected = IOException::class)
+    fun negativeRowCountThrowsIOException() {
+        val bytes = encode(todos)
+        ByteBuffer.wrap(bytes).putInt(8, -1)
+        BreedSnapshot.decode(ByteBuffer.wrap(bytes))
+    }
+}
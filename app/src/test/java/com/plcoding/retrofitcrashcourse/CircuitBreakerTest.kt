@@ -0,0 +1,105 @@
+package com.plcoding.retrofitcrashcourse
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class CircuitBreakerTest {
+
+    private val transitions = mutableListOf<CircuitBreaker.State>()
+    private val breaker = CircuitBreaker(failureThreshold = 3, openMillis = 1_000) { transitions += it }
+
+    private fun open(now: Long = 0L) {
+        repeat(3) { breaker.onFailure(now) }
+    }
+
+    @Test
+    fun opensAfterThresholdConsecutiveFailures() {
+        breaker.onFailure(0)
+        breaker.onFailure(0)
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state)
+
+        breaker.onFailure(0)
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state)
+        assertNull(breaker.tryAcquire(now = 999))
+    }
+
+    @Test
+    fun successResetsFailureCount() {
+        breaker.onFailure(0)
+        breaker.onFailure(0)
+        breaker.onSuccess()
+        breaker.onFailure(0)
+        breaker.onFailure(0)
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state)
+        assertEquals(CircuitBreaker.Permit.NORMAL, breaker.tryAcquire(now = 0))
+    }
+
+    @Test
+    fun letsOneTrialThroughAfterOpenPeriod() {
+        open()
+        assertEquals(CircuitBreaker.Permit.TRIAL, breaker.tryAcquire(now = 1_000))
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state)
+        assertNull(breaker.tryAcquire(now = 1_001))
+    }
+
+    @Test
+    fun successfulTrialCloses() {
+        open()
+        breaker.tryAcquire(now = 1_000)
+        breaker.onSuccess()
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state)
+        assertEquals(CircuitBreaker.Permit.NORMAL, breaker.tryAcquire(now = 1_001))
+    }
+
+    @Test
+    fun failedTrialReopensFromFailureTime() {
+        open()
+        breaker.tryAcquire(now = 1_000)
+        breaker.onFailure(now = 1_500)
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state)
+        assertNull(breaker.tryAcquire(now = 2_499))
+        assertEquals(CircuitBreaker.Permit.TRIAL, breaker.tryAcquire(now = 2_500))
+    }
+
+    @Test
+    fun releasedTrialAllowsNextTrial() {
+        open()
+        breaker.tryAcquire(now = 1_000)
+        breaker.releaseTrial()
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state)
+        assertEquals(CircuitBreaker.Permit.TRIAL, breaker.tryAcquire(now = 1_001))
+    }
+
+    @Test
+    fun releaseTrialIsNoOpOutsideHalfOpen() {
+        breaker.releaseTrial()
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state)
+
+        open(now = 0)
+        breaker.tryAcquire(now = 1_000)
+        breaker.onFailure(now = 1_200)
+        breaker.releaseTrial()
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state)
+        assertNull(breaker.tryAcquire(now = 1_300))
+    }
+
+    @Test
+    fun reportsEveryTransition() {
+        open()
+        breaker.tryAcquire(now = 1_000)
+        breaker.releaseTrial()
+        breaker.tryAcquire(now = 1_001)
+        breaker.onSuccess()
+        assertEquals(
+            listOf(
+                CircuitBreaker.State.OPEN,
+                CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.OPEN,
+                CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.CLOSED
+            ),
+            transitions
+        )
+    }
+}
@@ -0,0 +1,80 @@
+package com.plcoding.retrofitcrashcourse
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.IOException
+
+class LazyTodoListTest {
+
+    private fun index(json: String) = LazyTodoList.index(json.toByteArray(Charsets.UTF_8))
+
+    private fun assertMalformed(json: String) {
+        try {
+            index(json)
+            fail("Expected IOException for <$json>")
+        } catch (expected: IOException) {
+        }
+    }
+
+    @Test
+    fun indexesEmptyArray() {
+        assertEquals(0, index("[]").size)
+        assertEquals(0, index(" \n[ \t]").size)
+    }
+
+    @Test
+    fun indexesAndDecodesRows() {
+        val todos = index(
+            """[{"id":1,"name":"Akita","image":{"id":"a","url":"https://x/a.jpg","width":4,"height":3}},
+               {"id":2,"name":"Beagle","image":null}]"""
+        )
+        assertEquals(2, todos.size)
+        assertEquals(1, todos[0].id)
+        assertEquals("Akita", todos[0].name)
+        assertEquals(Image(height = 3, id = "a", url = "https://x/a.jpg", width = 4), todos[0].image)
+        assertEquals("Beagle", todos[1].name)
+        assertNull(todos[1].image)
+    }
+
+    @Test
+    fun skipsEscapedQuotesAndBracketsInStrings() {
+        val todos = index("""[{"id":1,"name":"say \"hi\", ]}[{ \\"},{"id":2,"name":"b\\\\"}]""")
+        assertEquals(2, todos.size)
+        assertEquals("say \"hi\", ]}[{ \\", todos[0].name)
+        assertEquals("b\\\\", todos[1].name)
+    }
+
+    @Test
+    fun skipsNestedArraysAndObjects() {
+        val todos = index("""[{"id":1,"tags":[[1,2],[{"a":[]}]],"meta":{"x":{"y":[3]}}},{"id":2}]""")
+        assertEquals(2, todos.size)
+        assertEquals(1, todos[0].id)
+        assertEquals(2, todos[1].id)
+    }
+
+    @Test
+    fun skipsNullElements() {
+        val todos = index("""[null, {"id":1,"name":"null"} ,null ,{"id":2}, null]""")
+        assertEquals(2, todos.size)
+        assertEquals(1, todos[0].id)
+        assertEquals("null", todos[0].name)
+        assertEquals(2, todos[1].id)
+        assertEquals(0, index("[null]").size)
+    }
+
+    @Test
+    fun rejectsMalformedInput() {
+        assertMalformed("")
+        assertMalformed("   ")
+        assertMalformed("{}")
+        assertMalformed("[")
+        assertMalformed("[{\"id\":1}")
+        assertMalformed("[{\"id\":1},")
+        assertMalformed("[{\"id\":1},]")
+        assertMalformed("[,]")
+        assertMalformed("[{\"id\":1} {\"id\":2}]")
+        assertMalformed("[{\"name\":\"unterminated}]")
+    }
+}
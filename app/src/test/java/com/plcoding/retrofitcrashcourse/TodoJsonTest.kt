@@ -0,0 +1,43 @@
+package com.plcoding.retrofitcrashcourse
+
+import com.google.gson.reflect.TypeToken
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class TodoJsonTest {
+
+    private fun decodeList(json: String): List<Todo> =
+        TodoJson.gson.fromJson(json, object : TypeToken<List<Todo>>() {}.type)
+
+    @Test
+    fun defaultsFieldsTheBreedsFeedLacks() {
+        val todo = TodoJson.gson.fromJson("""{"id":7,"name":"Akita"}""", Todo::class.java)
+        assertEquals(Todo(completed = false, id = 7, title = "", userId = 0, name = "Akita", image = null), todo)
+    }
+
+    @Test
+    fun defaultsExplicitNulls() {
+        val todo = TodoJson.gson.fromJson(
+            """{"id":null,"name":null,"completed":null,"title":null,"userId":null,"image":{"id":null,"url":null}}""",
+            Todo::class.java
+        )
+        assertEquals(0, todo.id)
+        assertEquals("", todo.name)
+        assertEquals(false, todo.completed)
+        assertEquals("", todo.title)
+        assertEquals(0, todo.userId)
+        assertEquals(Image(height = 0, id = "", url = "", width = 0), todo.image)
+    }
+
+    @Test
+    fun dropsNullRowsFromLists() {
+        val todos = decodeList("""[null,{"id":1},null,{"id":2},null]""")
+        assertEquals(listOf(1, 2), todos.map { it.id })
+    }
+
+    @Test
+    fun decodesNullListAsNull() {
+        assertNull(TodoJson.gson.fromJson<List<Todo>>("null", object : TypeToken<List<Todo>>() {}.type))
+    }
+}